@@ -1,13 +1,21 @@
 package com.example.animemanager.Controller;
 
+import com.example.animemanager.DTO.UserDataStatsDTO;
 import com.example.animemanager.Entity.Subject;
 import com.example.animemanager.Main;
+import com.example.animemanager.Service.ArchiveImportService;
 import com.example.animemanager.Service.DataImportService;
 import com.example.animemanager.Service.FilterService;
+import com.example.animemanager.Service.ImportHandle;
 import com.example.animemanager.Service.ScoreCalculatorService;
 import com.example.animemanager.Service.SubjectService;
+import com.example.animemanager.Service.UserDataTransferService;
+import com.example.animemanager.Util.ImportMetrics;
 import com.example.animemanager.Util.LogCollector;
+import lombok.extern.slf4j.Slf4j;
 import org.kordamp.ikonli.javafx.FontIcon;
+import javafx.animation.KeyFrame;
+import javafx.animation.Timeline;
 import javafx.application.Platform;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
@@ -26,22 +34,31 @@ import javafx.scene.layout.HBox;
 import javafx.scene.layout.Priority;
 import javafx.scene.layout.VBox;
 import javafx.scene.paint.Color;
+import javafx.stage.FileChooser;
 import javafx.stage.Stage;
+import javafx.util.Duration;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Controller;
 
+import java.io.File;
 import java.io.IOException;
 import java.net.URL;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
 import java.util.*;
+import java.util.concurrent.Callable;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
 
+@Slf4j
 @Controller
 public class MainController implements Initializable {
 
     @FXML private ListView<Subject> subjectListView;
     @FXML private ComboBox<String> sortCombo;
     @FXML private ToggleButton ascDescToggle;
+    @FXML private CheckBox forceRefreshCheck;
+    @FXML private Button cancelImportButton;
     @FXML private Label statusLabel;
     @FXML private TextField searchField;
     @FXML private ComboBox<String> filterTypeCombo;
@@ -56,6 +73,8 @@ public class MainController implements Initializable {
 
     @Autowired private SubjectService subjectService;
     @Autowired private DataImportService dataImportService;
+    @Autowired private ArchiveImportService archiveImportService;
+    @Autowired private UserDataTransferService userDataTransferService;
     @Autowired private FilterService filterService;
     @Autowired private ScoreCalculatorService scoreCalculatorService;
 
@@ -63,6 +82,8 @@ public class MainController implements Initializable {
     private final ObservableList<Subject> observableSubjects = FXCollections.observableArrayList();
     private FilteredList<Subject> filteredSubjects;
     private boolean logDrawerVisible = false;
+    private ImportHandle currentImport; // 正在进行的后台同步，未同步时为 null
+    private boolean bulkOperationRunning = false; // 数据包导入、用户数据备份或恢复进行中
 
     // 用于保存筛选和排序状态
     private String savedSearchText = "";
@@ -370,17 +391,38 @@ public class MainController implements Initializable {
 
     @FXML
     private void onUpdateDataClick() {
+        if (currentImport != null || bulkOperationRunning) {
+            statusLabel.setText("已有同步任务在进行中");
+            return;
+        }
         statusLabel.setText("后台数据更新中...");
+        // 勾选后忽略同步进度与刷新周期，完整刷新一遍
+        boolean forceRefresh = forceRefreshCheck.isSelected();
+        ImportHandle handle = dataImportService.startCollect(forceRefresh);
+        currentImport = handle;
+        cancelImportButton.setDisable(false);
         Task<Void> updateTask = new Task<>() {
             @Override
             protected Void call() throws Exception {
-                dataImportService.DataImport();
+                handle.getCompletion().get();
                 return null;
             }
         };
 
+        // 导入过程中每秒刷新一次状态栏上的实时指标
+        Timeline metricsRefresh = new Timeline(new KeyFrame(Duration.seconds(1),
+                e -> statusLabel.setText((handle.isCancelled() ? "正在取消: " : "")
+                        + dataImportService.getCurrentMetrics().liveSummary())));
+        metricsRefresh.setCycleCount(Timeline.INDEFINITE);
+
+        updateTask.setOnRunning(e -> metricsRefresh.play());
+
         updateTask.setOnSucceeded(e -> {
-            statusLabel.setText("更新完成，正在刷新...");
+            metricsRefresh.stop();
+            currentImport = null;
+            cancelImportButton.setDisable(true);
+            // 取消前已写库的条目同样需要刷新显示
+            statusLabel.setText(handle.isCancelled() ? "同步已取消，下次更新从中断处继续" : "更新完成，正在刷新...");
             filterInput.clear();
             startDateField.clear();
             endDateField.clear();
@@ -395,6 +437,9 @@ public class MainController implements Initializable {
 
 
         updateTask.setOnFailed(e -> {
+            metricsRefresh.stop();
+            currentImport = null;
+            cancelImportButton.setDisable(true);
             statusLabel.setText("更新失败!");
             e.getSource().getException().printStackTrace();
         });
@@ -404,6 +449,125 @@ public class MainController implements Initializable {
         thread.start();
     }
 
+    @FXML
+    private void onCancelImportClick() {
+        if (currentImport == null) {
+            return;
+        }
+        statusLabel.setText("正在取消同步，等待已获取的数据写入...");
+        cancelImportButton.setDisable(true);
+        currentImport.cancel();
+    }
+
+    @FXML
+    private void onImportArchiveClick() {
+        if (currentImport != null || bulkOperationRunning) {
+            statusLabel.setText("已有同步任务在进行中");
+            return;
+        }
+        FileChooser chooser = new FileChooser();
+        chooser.setTitle("选择 Bangumi 离线数据包");
+        chooser.getExtensionFilters().add(new FileChooser.ExtensionFilter("Bangumi Archive (*.zip)", "*.zip"));
+        File archive = chooser.showOpenDialog(statusLabel.getScene().getWindow());
+        if (archive == null) {
+            return;
+        }
+        bulkOperationRunning = true;
+        statusLabel.setText("正在从数据包导入，详情见日志...");
+        Task<ImportMetrics> importTask = new Task<>() {
+            @Override
+            protected ImportMetrics call() throws Exception {
+                return archiveImportService.importArchive(archive.toPath());
+            }
+        };
+
+        importTask.setOnSucceeded(e -> {
+            bulkOperationRunning = false;
+            ImportMetrics metrics = importTask.getValue();
+            statusLabel.setText(String.format("数据包导入完成: 成功 %d 个，失败 %d 个",
+                    metrics.completedCount() - metrics.failedCount(), metrics.failedCount()));
+            loadSubjectsAsync(true);
+        });
+
+        importTask.setOnFailed(e -> {
+            bulkOperationRunning = false;
+            statusLabel.setText("数据包导入失败!");
+            log.error("数据包导入失败: {}", archive, e.getSource().getException());
+        });
+
+        Thread thread = new Thread(importTask);
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    @FXML
+    private void onExportUserDataClick() {
+        if (currentImport != null || bulkOperationRunning) {
+            statusLabel.setText("已有同步任务在进行中");
+            return;
+        }
+        FileChooser chooser = userDataChooser("备份用户数据");
+        chooser.setInitialFileName("animemanager-userdata-" + LocalDate.now().format(DateTimeFormatter.BASIC_ISO_DATE) + ".jsonl.gz");
+        File file = chooser.showSaveDialog(statusLabel.getScene().getWindow());
+        if (file == null) {
+            return;
+        }
+        bulkOperationRunning = true;
+        statusLabel.setText("正在备份用户数据...");
+        runUserDataTask(() -> userDataTransferService.exportTo(file.toPath()), "用户数据已备份: ", "用户数据备份失败!", false);
+    }
+
+    @FXML
+    private void onImportUserDataClick() {
+        if (currentImport != null || bulkOperationRunning) {
+            statusLabel.setText("已有同步任务在进行中");
+            return;
+        }
+        File file = userDataChooser("恢复用户数据").showOpenDialog(statusLabel.getScene().getWindow());
+        if (file == null) {
+            return;
+        }
+        bulkOperationRunning = true;
+        statusLabel.setText("正在恢复用户数据...");
+        runUserDataTask(() -> userDataTransferService.importFrom(file.toPath()), "用户数据已恢复: ", "用户数据恢复失败!", true);
+    }
+
+    private FileChooser userDataChooser(String title) {
+        FileChooser chooser = new FileChooser();
+        chooser.setTitle(title);
+        chooser.getExtensionFilters().addAll(
+                new FileChooser.ExtensionFilter("AnimeManager 用户数据 (*.jsonl.gz, *.jsonl)", "*.jsonl.gz", "*.jsonl"),
+                new FileChooser.ExtensionFilter("所有文件", "*.*"));
+        return chooser;
+    }
+
+    private void runUserDataTask(Callable<UserDataStatsDTO> action, String successPrefix, String failureText, boolean reload) {
+        Task<UserDataStatsDTO> task = new Task<>() {
+            @Override
+            protected UserDataStatsDTO call() throws Exception {
+                return action.call();
+            }
+        };
+
+        task.setOnSucceeded(e -> {
+            bulkOperationRunning = false;
+            if (reload) {
+                loadSubjectsAsync(true);
+            }
+            statusLabel.setText(successPrefix + task.getValue());
+        });
+
+        task.setOnFailed(e -> {
+            bulkOperationRunning = false;
+            statusLabel.setText(failureText);
+            log.error(failureText, e.getSource().getException());
+        });
+
+        Thread thread = new Thread(task);
+        thread.setDaemon(true);
+        thread.start();
+    }
+
     // 3. 添加执行筛选逻辑的方法
     @FXML
     private void onFilterClick() {
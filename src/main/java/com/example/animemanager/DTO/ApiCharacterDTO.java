@@ -0,0 +1,21 @@
+package com.example.animemanager.DTO;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * /v0/subjects/{id}/characters 的元素。
+ */
+@Data
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class ApiCharacterDTO {
+    private Long id;
+    private String name;
+    private String summary;
+    private String relation;
+    private Integer type;
+    private ApiImagesDTO images;
+    private List<ApiPersonDTO> actors;
+}
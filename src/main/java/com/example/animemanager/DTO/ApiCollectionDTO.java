@@ -0,0 +1,19 @@
+package com.example.animemanager.DTO;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.Data;
+
+/**
+ * /v0/users/{username}/collections 的元素。
+ */
+@Data
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class ApiCollectionDTO {
+    @JsonProperty("subject_id")
+    private Long subjectId;
+    @JsonProperty("subject_type")
+    private Integer subjectType;
+    @JsonProperty("updated_at")
+    private String updatedAt;
+}
@@ -0,0 +1,18 @@
+package com.example.animemanager.DTO;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.Data;
+
+@Data
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class ApiEpisodeDTO {
+    private Long id;
+    private Integer ep;
+    private String name;
+    @JsonProperty("name_cn")
+    private String nameCn;
+    private String airdate;
+    private String duration;
+    private String desc;
+}
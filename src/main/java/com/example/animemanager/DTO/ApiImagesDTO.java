@@ -0,0 +1,14 @@
+package com.example.animemanager.DTO;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import lombok.Data;
+
+@Data
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class ApiImagesDTO {
+    private String small;
+    private String grid;
+    private String large;
+    private String medium;
+    private String common;
+}
@@ -0,0 +1,12 @@
+package com.example.animemanager.DTO;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.databind.JsonNode;
+import lombok.Data;
+
+@Data
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class ApiInfoboxDTO {
+    private String key;
+    private JsonNode value; // 可能是字符串，也可能是 {k, v} 数组
+}
@@ -0,0 +1,19 @@
+package com.example.animemanager.DTO;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import lombok.Data;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 分页接口（/v0/episodes、/v0/users/{u}/collections）的通用响应结构。
+ */
+@Data
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class ApiPageDTO<T> {
+    private Integer total;
+    private Integer limit;
+    private Integer offset;
+    private List<T> data = new ArrayList<>();
+}
@@ -0,0 +1,23 @@
+package com.example.animemanager.DTO;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * /v0/subjects/{id}/persons 的元素，也用于角色的 actors。
+ */
+@Data
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class ApiPersonDTO {
+    private Long id;
+    private String name;
+    @JsonProperty("short_summary")
+    private String shortSummary;
+    private Integer type;
+    private Boolean locked;
+    private ApiImagesDTO images;
+    private List<String> career;
+}
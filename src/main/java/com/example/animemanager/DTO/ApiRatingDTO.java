@@ -0,0 +1,12 @@
+package com.example.animemanager.DTO;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import lombok.Data;
+
+@Data
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class ApiRatingDTO {
+    private Integer rank;
+    private Integer total;
+    private Double score;
+}
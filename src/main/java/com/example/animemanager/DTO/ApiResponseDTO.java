@@ -0,0 +1,15 @@
+package com.example.animemanager.DTO;
+
+import lombok.Data;
+
+/**
+ * 一次 API 请求的结果：解码后的响应体以及响应校验信息。
+ * 条件请求命中时 notModified 为 true，body 为空。
+ */
+@Data
+public class ApiResponseDTO<T> {
+    private T body;
+    private boolean notModified;
+    private String etag;
+    private String lastModified;
+}
@@ -0,0 +1,31 @@
+package com.example.animemanager.DTO;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * /v0/subjects/{id} 响应中导入需要的字段。
+ */
+@Data
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class ApiSubjectDTO {
+    private Long id;
+    private String name;
+    @JsonProperty("name_cn")
+    private String nameCn;
+    private String date;
+    private String platform;
+    private String summary;
+    private Integer eps;
+    private Integer volumes;
+    private Boolean series;
+    private Boolean locked;
+    private Boolean nsfw;
+    private Integer type;
+    private ApiImagesDTO images;
+    private ApiRatingDTO rating;
+    private List<ApiInfoboxDTO> infobox;
+}
@@ -0,0 +1,18 @@
+package com.example.animemanager.DTO;
+
+import lombok.Data;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 一次收藏列表扫描的结果：需要进入导入流水线的条目，以及扫描完成后应保存的同步进度。
+ */
+@Data
+public class CollectionSyncDTO {
+    private List<Long> subjectIds = new ArrayList<>();
+    private String newestUpdatedAt; // 本次看到的最新 updated_at
+    private int scannedOffset;
+    private int total;
+    private boolean complete; // 扫描未因请求失败而中断
+}
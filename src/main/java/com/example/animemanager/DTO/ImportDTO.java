@@ -1,12 +1,25 @@
 package com.example.animemanager.DTO;
 
+import com.example.animemanager.Entity.HttpValidator;
 import lombok.Data;
 
+import java.util.List;
+
+/**
+ * 抓取阶段的产物：已解码为类型化对象的 API 响应，不保留原始字符串。
+ */
 @Data
 public class ImportDTO {
     private Long subjectId;
-    private String subjectJson;
-    private String characterJson;
-    private String personJson;
-    private String episodeJson;
+    private boolean update; // 已存在的条目，只携带主条目数据用于更新评分
+    private boolean delta; // 放送中的已有条目，额外携带角色与剧集用于补齐缺失的行
+    private boolean refill; // 上次没有完整导入的已有条目（剧集未写完或来自离线数据包），额外携带制作人员用于补齐图片
+    private boolean offline; // 来自离线数据包，不计为一次 API 同步
+    private ApiSubjectDTO subject;
+    private List<ApiCharacterDTO> characters;
+    private List<ApiPersonDTO> persons;
+    private ApiPageDTO<ApiEpisodeDTO> episodes; // 只有第一页，其余分页在条目写库后逐页请求
+
+    private boolean notModified; // 条件请求返回 304，无需解析和写库
+    private HttpValidator validator; // 主条目响应的校验信息，写库成功后保存
 }
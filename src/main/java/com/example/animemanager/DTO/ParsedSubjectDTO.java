@@ -0,0 +1,38 @@
+package com.example.animemanager.DTO;
+
+import com.example.animemanager.Entity.*;
+import com.example.animemanager.Entity.Character;
+import lombok.Data;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 解析阶段的产物：由 API 响应构建好的实体，尚未与数据库比对。
+ */
+@Data
+public class ParsedSubjectDTO {
+    private Long subjectId;
+    private boolean update;
+    private boolean delta; // 已有条目的增量同步：只补充缺失的剧集与角色
+    private boolean refill; // 增量同步时同时补齐主条目、人员与角色缺失的图片
+    private boolean offline; // 来自离线数据包：写入后不记录同步时间，下次在线同步时完整拉取
+    private HttpValidator validator; // 与条目数据在同一事务中保存
+
+    // 已有条目：仅包含最新的 Bangumi 评分与封面（库中缺少封面时补齐）
+    private Rating rating;
+    private Images images;
+
+    // 新条目：主条目实体及其关联数据（增量同步时只有角色、声优与剧集）
+    private Subject subject;
+    private List<Person> persons = new ArrayList<>(); // 制作人员与声优，按 ID 去重
+    private List<Character> characters = new ArrayList<>();
+    private List<Episode> episodes = new ArrayList<>(); // 剧集第一页
+    private int episodeTotal; // 剧集接口返回的总集数
+    private List<Infobox> infoboxes = new ArrayList<>();
+
+    // 第一页之外还有剧集，需要在条目提交后逐页写入
+    public boolean hasRemainingEpisodes() {
+        return episodeTotal > episodes.size();
+    }
+}
@@ -0,0 +1,22 @@
+package com.example.animemanager.DTO;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * 库中条目的同步状态：放送日期与最近同步时间，用于决定本次是否需要刷新评分或补齐数据。
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SubjectSyncStateDTO {
+    private Long id;
+    private String date; // 放送日期，格式 yyyy-MM-dd，可能为空
+    private LocalDateTime lastSyncedAt; // 从未同步过时为 null
+    private Integer eps; // 条目记录的总集数，未定时为 0
+    private Integer episodeCount; // 本地已保存的剧集数
+    private String cover; // 封面（大图）地址，离线数据包导入的条目为空
+}
@@ -0,0 +1,45 @@
+package com.example.animemanager.DTO;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * 用户数据备份文件中的一行（JSON Lines），只包含用户自己填写的数据，以 Bangumi ID 关联条目。
+ * kind 决定使用哪些字段：
+ * meta 为文件头（name、version）；tag 为标签名（name）；
+ * subject 为条目的六维评分与标签（id、评分字段、tags）；character / episode 为态度（id、attitude）。
+ */
+@Data
+@JsonInclude(JsonInclude.Include.NON_NULL)
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class UserDataRecordDTO {
+    public static final String META = "meta";
+    public static final String TAG = "tag";
+    public static final String SUBJECT = "subject";
+    public static final String CHARACTER = "character";
+    public static final String EPISODE = "episode";
+
+    private String kind;
+    private Long id;
+    private String name;
+    private Integer version;
+
+    // 六维评分与总分，条目未评分时整体省略
+    private Double information;
+    private Double story;
+    private Double character;
+    private Double quality;
+    private Double atmosphere;
+    private Double love;
+    private Double totalscore;
+
+    private List<String> tags;
+    private Integer attitude;
+
+    public boolean hasRating() {
+        return information != null;
+    }
+}
@@ -0,0 +1,30 @@
+package com.example.animemanager.DTO;
+
+import lombok.Data;
+
+/**
+ * 一次用户数据导出或导入的统计。skipped 为备份中存在、但本地数据库没有对应条目 / 角色 / 剧集的记录数，
+ * 以及缺少或无法识别 kind 的记录数。
+ */
+@Data
+public class UserDataStatsDTO {
+    private long tags;
+    private long subjects;
+    private long characters;
+    private long episodes;
+    private long skipped;
+
+    public void add(UserDataStatsDTO other) {
+        tags += other.tags;
+        subjects += other.subjects;
+        characters += other.characters;
+        episodes += other.episodes;
+        skipped += other.skipped;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("标签 %d 个，条目 %d 个，角色态度 %d 个，剧集态度 %d 个，跳过 %d 条",
+                tags, subjects, characters, episodes, skipped);
+    }
+}
@@ -0,0 +1,28 @@
+package com.example.animemanager.Entity;
+
+import jakarta.persistence.*;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+/**
+ * 按请求 URL 保存的响应校验信息（ETag / Last-Modified），
+ * 下次同步时作为条件请求头发送，未变化的条目服务器返回 304。
+ */
+@Data
+@Entity
+@Table(name = "http_validators")
+public class HttpValidator {
+    @Id
+    @Column(name = "url", length = 1024)
+    private String url;
+
+    @Column(name = "etag")
+    private String etag;
+
+    @Column(name = "last_modified")
+    private String lastModified;
+
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+}
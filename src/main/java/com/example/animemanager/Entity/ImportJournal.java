@@ -0,0 +1,42 @@
+package com.example.animemanager.Entity;
+
+import jakarta.persistence.*;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+/**
+ * 每个用户当前导入任务的进度日志。
+ * RUNNING 表示上次导入没有正常结束（程序关闭或崩溃），下次启动时从记录的位置继续。
+ */
+@Data
+@Entity
+@Table(name = "import_journal")
+public class ImportJournal {
+    public static final String RUNNING = "RUNNING";
+    public static final String FINISHED = "FINISHED";
+
+    @Id
+    @Column(name = "username")
+    private String username;
+
+    @Column(name = "status", nullable = false)
+    private String status;
+
+    // 收藏列表下一页的偏移量，扫描完成前中断时从这里继续
+    @Column(name = "collection_offset", nullable = false)
+    private Integer collectionOffset = 0;
+
+    @Column(name = "collection_complete", nullable = false)
+    private Boolean collectionComplete = false;
+
+    // 本次扫描看到的最新收藏时间，导入结束后写入同步进度
+    @Column(name = "newest_updated_at")
+    private String newestUpdatedAt;
+
+    @Column(name = "started_at")
+    private LocalDateTime startedAt;
+
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+}
@@ -0,0 +1,41 @@
+package com.example.animemanager.Entity;
+
+import jakarta.persistence.*;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+/**
+ * 导入日志中的单个条目：PLANNED 待处理，DONE 已完成，FAILED 失败（附原因）。
+ */
+@Data
+@Entity
+@Table(name = "import_journal_entries",
+        uniqueConstraints = @UniqueConstraint(columnNames = {"username", "subject_id"}))
+public class ImportJournalEntry {
+    public static final String PLANNED = "PLANNED";
+    public static final String DONE = "DONE";
+    public static final String FAILED = "FAILED";
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long entryId;
+
+    @Column(name = "username", nullable = false)
+    private String username;
+
+    @Column(name = "subject_id", nullable = false)
+    private Long subjectId;
+
+    @Column(name = "status", nullable = false)
+    private String status;
+
+    @Column(name = "reason", length = 1000)
+    private String reason;
+
+    @Column(name = "attempts", nullable = false)
+    private Integer attempts = 0;
+
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+}
@@ -4,6 +4,7 @@ import jakarta.persistence.*;
 import lombok.Data;
 import org.hibernate.annotations.ColumnDefault;
 
+import java.time.LocalDateTime;
 import java.util.Date;
 import java.util.List;
 
@@ -24,6 +25,10 @@ public class Subject {
     @Column(name = "date")
     private String date;
 
+    // 最近一次从 API 同步（含 304 确认未变化）的时间，用于判断评分是否需要刷新
+    @Column(name = "last_synced_at")
+    private LocalDateTime lastSyncedAt;
+
     @Column(name = "platform")
     private String platform;
 
@@ -0,0 +1,34 @@
+package com.example.animemanager.Entity;
+
+import jakarta.persistence.*;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+/**
+ * 每个用户的收藏同步进度，用于增量同步：
+ * 下次只处理 updated_at 晚于 lastUpdatedAt 的收藏条目。
+ */
+@Data
+@Entity
+@Table(name = "sync_checkpoints")
+public class SyncCheckpoint {
+    @Id
+    @Column(name = "username")
+    private String username;
+
+    // 已同步的最新一条收藏的 updated_at（Bangumi 返回的原始字符串）
+    @Column(name = "last_updated_at")
+    private String lastUpdatedAt;
+
+    // 上次同步翻页到的最大偏移量
+    @Column(name = "last_offset")
+    private Integer lastOffset;
+
+    // 上次同步时收藏总数
+    @Column(name = "total_count")
+    private Integer totalCount;
+
+    @Column(name = "synced_at")
+    private LocalDateTime syncedAt;
+}
@@ -3,9 +3,14 @@ package com.example.animemanager.Repository;
 import com.example.animemanager.Entity.Episode;
 import com.example.animemanager.Entity.Subject;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
 import java.util.List;
 
 public interface EpisodeRepository extends JpaRepository<Episode, Long> {
     List<Episode> findBySubject(Subject subject);
+
+    @Query("SELECT e.id FROM Episode e WHERE e.subject.id = :subjectId")
+    List<Long> findIdsBySubjectId(@Param("subjectId") Long subjectId);
 }
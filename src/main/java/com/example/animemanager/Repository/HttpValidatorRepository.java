@@ -0,0 +1,7 @@
+package com.example.animemanager.Repository;
+
+import com.example.animemanager.Entity.HttpValidator;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+public interface HttpValidatorRepository extends JpaRepository<HttpValidator, String> {
+}
@@ -0,0 +1,22 @@
+package com.example.animemanager.Repository;
+
+import com.example.animemanager.Entity.ImportJournalEntry;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.List;
+
+public interface ImportJournalEntryRepository extends JpaRepository<ImportJournalEntry, Long> {
+    // 待处理的条目：尚未完成的，以及重试次数未用完的失败条目
+    @Query("SELECT e.subjectId FROM ImportJournalEntry e WHERE e.username = :username " +
+            "AND (e.status = 'PLANNED' OR (e.status = 'FAILED' AND e.attempts < :maxAttempts)) ORDER BY e.entryId")
+    List<Long> findPendingSubjectIds(@Param("username") String username, @Param("maxAttempts") int maxAttempts);
+
+    long countByUsernameAndStatus(String username, String status);
+
+    @Modifying
+    @Query("DELETE FROM ImportJournalEntry e WHERE e.username = :username AND e.status = 'DONE'")
+    int deleteDone(@Param("username") String username);
+}
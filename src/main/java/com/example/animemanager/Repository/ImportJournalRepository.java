@@ -0,0 +1,7 @@
+package com.example.animemanager.Repository;
+
+import com.example.animemanager.Entity.ImportJournal;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+public interface ImportJournalRepository extends JpaRepository<ImportJournal, String> {
+}
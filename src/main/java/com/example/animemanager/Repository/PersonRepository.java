@@ -4,10 +4,17 @@ import com.example.animemanager.Entity.Person;
 import com.example.animemanager.Entity.Subject;
 import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
+import java.util.Collection;
 import java.util.List;
 
 public interface PersonRepository extends JpaRepository<Person, Long> {
     @EntityGraph(attributePaths = {"careers"})
     List<Person> findBySubjectsContaining(Subject subject);
+
+    // 批量判断哪些 ID 已存在，一次 IN 查询代替逐条 existsById
+    @Query("SELECT p.id FROM Person p WHERE p.id IN :ids")
+    List<Long> findExistingIds(@Param("ids") Collection<Long> ids);
 }
@@ -1,10 +1,12 @@
 package com.example.animemanager.Repository;
 
+import com.example.animemanager.DTO.SubjectSyncStateDTO;
 import com.example.animemanager.Entity.Subject;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -19,4 +21,13 @@ public interface SubjectRepository extends JpaRepository<Subject, Long> {
     List<Subject> findByEpisodeAttitude(@Param("attitude") int attitude);
     @Query("SELECT DISTINCT s FROM Subject s JOIN s.tags t WHERE t.name LIKE %:keyword%")
     List<Subject> findByTagNameContaining(@Param("keyword") String keyword);
-}
\ No newline at end of file
+
+    // 批量判断哪些 ID 已存在，一次 IN 查询代替逐条 existsById
+    @Query("SELECT s.id FROM Subject s WHERE s.id IN :ids")
+    List<Long> findExistingIds(@Param("ids") Collection<Long> ids);
+
+    // 只查出判断刷新周期所需的列，不加载整个实体
+    @Query("SELECT new com.example.animemanager.DTO.SubjectSyncStateDTO(s.id, s.date, s.lastSyncedAt, s.eps, " +
+            "SIZE(s.episodes), s.images.large) FROM Subject s")
+    List<SubjectSyncStateDTO> findSyncStates();
+}
@@ -0,0 +1,7 @@
+package com.example.animemanager.Repository;
+
+import com.example.animemanager.Entity.SyncCheckpoint;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+public interface SyncCheckpointRepository extends JpaRepository<SyncCheckpoint, String> {
+}
@@ -0,0 +1,449 @@
+package com.example.animemanager.Service;
+
+import com.example.animemanager.DTO.*;
+import com.example.animemanager.Repository.SubjectRepository;
+import com.example.animemanager.Util.ImportMetrics;
+import com.example.animemanager.Util.ImportSettings;
+import com.example.animemanager.Util.JsonConfigUtil;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.fasterxml.jackson.databind.node.TextNode;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.function.Consumer;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * 从 Bangumi 离线数据包（bangumi/Archive 发布的 zip，内含 JSON Lines 文件）批量导入。
+ * 直接从 zip 中逐行读取，不解压到磁盘；记录先转换为与 API 响应相同的 DTO，
+ * 再交给 {@link ImportParserService} 与 {@link ImportPersistenceService}，实体映射与在线同步完全一致。
+ * 库中已有的条目只更新评分并补齐缺失的剧集与角色，本地评分、态度与标签保持不变。
+ */
+@Slf4j
+@Service
+public class ArchiveImportService {
+
+    private static final String SUBJECTS = "subject.jsonlines";
+    private static final String PERSONS = "person.jsonlines";
+    private static final String CHARACTERS = "character.jsonlines";
+    private static final String EPISODES = "episode.jsonlines";
+    private static final String SUBJECT_PERSONS = "subject-persons.jsonlines";
+    private static final String SUBJECT_CHARACTERS = "subject-characters.jsonlines";
+    private static final String PERSON_CHARACTERS = "person-characters.jsonlines";
+
+    private static final int ANIME_SUBJECT_TYPE = 2;
+    private static final int MAIN_EPISODE_TYPE = 0;
+    // 数据包中的放送平台与角色关系是数字代码，转换为 API 返回的文字
+    private static final Map<Integer, String> PLATFORMS = Map.of(1, "TV", 2, "OVA", 3, "剧场版", 5, "WEB");
+    private static final Map<Integer, String> RELATIONS = Map.of(1, "主角", 2, "配角", 3, "客串");
+
+    private final SubjectRepository subjectRepository;
+    private final ImportParserService importParserService;
+    private final ImportPersistenceService importPersistenceService;
+    private final DataImportService dataImportService;
+
+    private final ObjectReader lineReader = new ObjectMapper().readerFor(JsonNode.class);
+
+    @Autowired
+    public ArchiveImportService(
+            SubjectRepository subjectRepository,
+            ImportParserService importParserService,
+            ImportPersistenceService importPersistenceService,
+            DataImportService dataImportService) {
+        this.subjectRepository = subjectRepository;
+        this.importParserService = importParserService;
+        this.importPersistenceService = importPersistenceService;
+        this.dataImportService = dataImportService;
+    }
+
+    /**
+     * 按配置的范围（用户收藏或全部动画）导入数据包，返回本次导入的指标。
+     */
+    public ImportMetrics importArchive(Path archive) throws IOException {
+        boolean allAnime = "anime".equalsIgnoreCase(ImportSettings.archiveFilter());
+        Set<Long> wanted = null;
+        if (!allAnime) {
+            wanted = collectionSubjectIds();
+            if (wanted == null) {
+                throw new IllegalStateException("无法获取用户收藏列表，请检查 config.json 中的 username");
+            }
+        }
+        return importArchive(archive, wanted);
+    }
+
+    /**
+     * @param wanted 需要导入的条目 ID，为 null 时导入数据包中的全部动画
+     */
+    public ImportMetrics importArchive(Path archive, Set<Long> wanted) throws IOException {
+        log.info(">>> 开始从离线数据包导入: {}（{}）", archive, wanted == null ? "全部动画" : wanted.size() + " 个收藏条目");
+        ImportMetrics metrics = new ImportMetrics("archive/" + (wanted == null ? "anime" : "collection"));
+        try (ZipFile zip = new ZipFile(archive.toFile(), StandardCharsets.UTF_8)) {
+            // 1. 第一遍只收集需要导入的动画条目 ID，条目内容按轮重新读取
+            List<Long> ids = readSubjectIds(zip, wanted);
+            metrics.setPlanned(ids.size());
+            log.info("数据包中匹配到 {} 个动画条目", ids.size());
+
+            // 2. 分轮处理：每轮只在内存中保留本轮的条目及其关联的人员、角色与剧集
+            importPersistenceService.openIdCaches(metrics);
+            int chunkSize = ImportSettings.archiveChunkSize();
+            for (int from = 0; from < ids.size(); from += chunkSize) {
+                importChunk(zip, new HashSet<>(ids.subList(from, Math.min(from + chunkSize, ids.size()))), metrics);
+            }
+        } finally {
+            importPersistenceService.closeIdCaches();
+            metrics.finish();
+        }
+        log.info("离线数据包导入统计: {}", metrics.summary());
+        log.info("<<< 离线数据包导入完成");
+        return metrics;
+    }
+
+    // 收藏列表获取失败时返回 null
+    private Set<Long> collectionSubjectIds() {
+        String username = JsonConfigUtil.readUser("Data/config.json");
+        if (username == null || username.isEmpty()) {
+            log.error("用户名配置为空，无法按收藏筛选数据包");
+            return null;
+        }
+        List<Long> collection = dataImportService.fetchCollectionSubjectIds(username);
+        if (collection == null) {
+            return null;
+        }
+        return new HashSet<>(collection);
+    }
+
+    private void importChunk(ZipFile zip, Set<Long> subjectIds, ImportMetrics metrics) throws IOException {
+        // 1. 本轮的主条目，以及关联文件：条目 → 人员 / 角色，每个条目中角色的声优
+        Map<Long, ApiSubjectDTO> subjects = new LinkedHashMap<>();
+        forEachLine(zip, SUBJECTS, node -> {
+            long id = node.path("id").asLong();
+            if (subjectIds.contains(id)) {
+                subjects.put(id, toSubject(node));
+            }
+        });
+        Map<Long, List<Long>> subjectPersons = new HashMap<>();
+        Set<Long> personIds = new HashSet<>();
+        forEachLine(zip, SUBJECT_PERSONS, node -> {
+            long subjectId = node.path("subject_id").asLong();
+            if (subjectIds.contains(subjectId)) {
+                long personId = node.path("person_id").asLong();
+                subjectPersons.computeIfAbsent(subjectId, key -> new ArrayList<>()).add(personId);
+                personIds.add(personId);
+            }
+        });
+        Map<Long, List<JsonNode>> subjectCharacters = new HashMap<>();
+        Set<Long> characterIds = new HashSet<>();
+        forEachLine(zip, SUBJECT_CHARACTERS, node -> {
+            long subjectId = node.path("subject_id").asLong();
+            if (subjectIds.contains(subjectId)) {
+                subjectCharacters.computeIfAbsent(subjectId, key -> new ArrayList<>()).add(node);
+                characterIds.add(node.path("character_id").asLong());
+            }
+        });
+        Map<Long, Map<Long, List<Long>>> casts = new HashMap<>();
+        forEachLine(zip, PERSON_CHARACTERS, node -> {
+            long subjectId = node.path("subject_id").asLong();
+            if (subjectIds.contains(subjectId)) {
+                long personId = node.path("person_id").asLong();
+                casts.computeIfAbsent(subjectId, key -> new HashMap<>())
+                        .computeIfAbsent(node.path("character_id").asLong(), key -> new ArrayList<>())
+                        .add(personId);
+                personIds.add(personId);
+            }
+        });
+
+        // 2. 只保留本轮用到的人员、角色与剧集
+        Map<Long, ApiPersonDTO> persons = new HashMap<>();
+        forEachLine(zip, PERSONS, node -> {
+            if (personIds.contains(node.path("id").asLong())) {
+                ApiPersonDTO person = toPerson(node);
+                persons.put(person.getId(), person);
+            }
+        });
+        Map<Long, JsonNode> characters = new HashMap<>();
+        forEachLine(zip, CHARACTERS, node -> {
+            if (characterIds.contains(node.path("id").asLong())) {
+                characters.put(node.path("id").asLong(), node);
+            }
+        });
+        Map<Long, List<JsonNode>> episodes = new HashMap<>();
+        forEachLine(zip, EPISODES, node -> {
+            long subjectId = node.path("subject_id").asLong();
+            if (subjectIds.contains(subjectId)) {
+                episodes.computeIfAbsent(subjectId, key -> new ArrayList<>()).add(node);
+            }
+        });
+
+        // 3. 组装为与 API 响应相同的 DTO，分组写库
+        Set<Long> existing = new HashSet<>(subjectRepository.findExistingIds(subjectIds));
+        List<ParsedSubjectDTO> group = new ArrayList<>();
+        Map<Long, Long> startTimes = new HashMap<>();
+        for (ApiSubjectDTO subject : subjects.values()) {
+            long subjectId = subject.getId();
+            startTimes.put(subjectId, metrics.subjectStarted());
+            try {
+                ImportDTO dto = toImportDto(subject, existing.contains(subjectId),
+                        subjectPersons.getOrDefault(subjectId, List.of()),
+                        subjectCharacters.getOrDefault(subjectId, List.of()),
+                        casts.getOrDefault(subjectId, Map.of()),
+                        episodes.getOrDefault(subjectId, List.of()),
+                        persons, characters);
+                group.add(importParserService.parse(dto));
+            } catch (RuntimeException e) {
+                log.error("SubjectID: {} 解析失败: {}", subjectId, e.getMessage());
+                metrics.subjectFinished(startTimes.remove(subjectId), false);
+            }
+            if (group.size() >= ImportSettings.persistGroupSize()) {
+                persistGroup(group, startTimes, metrics);
+                group.clear();
+            }
+        }
+        persistGroup(group, startTimes, metrics);
+        log.info("同步进度 {}/{}", metrics.completedCount(), subjectIds.size());
+    }
+
+    /**
+     * 分组写库，整组失败时逐条重试，见 {@link ImportPersistenceService#persistWithFallback}。
+     * 数据包导入只有一个线程写库，不需要实体锁。
+     */
+    private void persistGroup(List<ParsedSubjectDTO> group, Map<Long, Long> startTimes, ImportMetrics metrics) {
+        if (group.isEmpty()) {
+            return;
+        }
+        List<ParsedSubjectDTO> failed;
+        try {
+            failed = importPersistenceService.persistWithFallback(group, metrics,
+                    subjects -> {
+                        long persistStart = System.nanoTime();
+                        importPersistenceService.persistGroup(subjects, parsed -> true);
+                        metrics.recordPersist(System.nanoTime() - persistStart);
+                        return List.of();
+                    },
+                    parsed -> importPersistenceService.persistGroup(List.of(parsed), ignored -> true));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("数据包导入被中断", e);
+        }
+        for (ParsedSubjectDTO parsed : group) {
+            metrics.subjectFinished(startTimes.remove(parsed.getSubjectId()), !failed.contains(parsed));
+        }
+    }
+
+    private List<Long> readSubjectIds(ZipFile zip, Set<Long> wanted) throws IOException {
+        Set<Long> ids = new LinkedHashSet<>();
+        forEachLine(zip, SUBJECTS, node -> {
+            long id = node.path("id").asLong();
+            if (node.path("type").asInt() == ANIME_SUBJECT_TYPE && (wanted == null || wanted.contains(id))) {
+                ids.add(id);
+            }
+        });
+        return new ArrayList<>(ids);
+    }
+
+    private ImportDTO toImportDto(ApiSubjectDTO subject, boolean exists, List<Long> personIds,
+                                  List<JsonNode> characterLinks, Map<Long, List<Long>> casts,
+                                  List<JsonNode> episodeNodes, Map<Long, ApiPersonDTO> persons,
+                                  Map<Long, JsonNode> characters) {
+        ImportDTO dto = new ImportDTO();
+        dto.setSubjectId(subject.getId());
+        dto.setSubject(subject);
+        dto.setOffline(true); // 数据包不含图片，下次在线同步时完整拉取
+
+        // 角色的关系与声优因条目而异，每个条目单独构建
+        List<ApiCharacterDTO> subjectCharacters = new ArrayList<>();
+        characterLinks.stream()
+                .sorted(Comparator.comparingInt(link -> link.path("order").asInt()))
+                .forEach(link -> {
+                    JsonNode node = characters.get(link.path("character_id").asLong());
+                    if (node != null) {
+                        ApiCharacterDTO character = toCharacter(node, link.path("type").asInt());
+                        List<ApiPersonDTO> actors = new ArrayList<>();
+                        for (Long personId : casts.getOrDefault(character.getId(), List.of())) {
+                            ApiPersonDTO actor = persons.get(personId);
+                            if (actor != null) {
+                                actors.add(actor);
+                            }
+                        }
+                        character.setActors(actors);
+                        subjectCharacters.add(character);
+                    }
+                });
+        dto.setCharacters(subjectCharacters);
+
+        List<ApiEpisodeDTO> subjectEpisodes = new ArrayList<>();
+        int mainEpisodes = 0;
+        for (JsonNode node : episodeNodes) {
+            subjectEpisodes.add(toEpisode(node));
+            if (node.path("type").asInt() == MAIN_EPISODE_TYPE) {
+                mainEpisodes++;
+            }
+        }
+        if (subject.getEps() == null || subject.getEps() == 0) {
+            subject.setEps(mainEpisodes); // 数据包的主条目不含话数，按正片剧集数补齐
+        }
+        ApiPageDTO<ApiEpisodeDTO> page = new ApiPageDTO<>();
+        page.setData(subjectEpisodes);
+        page.setTotal(subjectEpisodes.size());
+        dto.setEpisodes(page);
+
+        if (exists) {
+            // 已有条目走增量同步：只更新评分并补齐缺失的剧集与角色，不覆盖本地数据
+            dto.setUpdate(true);
+            dto.setDelta(true);
+        } else {
+            List<ApiPersonDTO> subjectPersons = new ArrayList<>();
+            for (Long personId : personIds) {
+                ApiPersonDTO person = persons.get(personId);
+                if (person != null) {
+                    subjectPersons.add(person);
+                }
+            }
+            dto.setPersons(subjectPersons);
+        }
+        return dto;
+    }
+
+    private ApiSubjectDTO toSubject(JsonNode node) {
+        ApiSubjectDTO subject = new ApiSubjectDTO();
+        subject.setId(node.path("id").asLong());
+        subject.setName(node.path("name").asText(""));
+        subject.setNameCn(node.path("name_cn").asText(""));
+        subject.setDate(node.path("date").asText(""));
+        subject.setPlatform(PLATFORMS.getOrDefault(node.path("platform").asInt(), ""));
+        subject.setSummary(node.path("summary").asText(""));
+        subject.setEps(node.path("eps").asInt(0));
+        subject.setVolumes(node.path("volumes").asInt(0));
+        subject.setSeries(node.path("series").asBoolean(false));
+        subject.setLocked(node.path("locked").asBoolean(false));
+        subject.setNsfw(node.path("nsfw").asBoolean(false));
+        subject.setType(node.path("type").asInt());
+        subject.setInfobox(parseInfobox(node.path("infobox").asText("")));
+
+        ApiRatingDTO rating = new ApiRatingDTO();
+        rating.setScore(node.path("score").asDouble(0.0));
+        rating.setRank(node.path("rank").asInt(0));
+        int total = 0;
+        for (JsonNode count : node.path("score_details")) {
+            total += count.asInt(0);
+        }
+        rating.setTotal(total);
+        subject.setRating(rating);
+        return subject;
+    }
+
+    private static ApiPersonDTO toPerson(JsonNode node) {
+        ApiPersonDTO person = new ApiPersonDTO();
+        person.setId(node.path("id").asLong());
+        person.setName(node.path("name").asText(""));
+        person.setShortSummary(node.path("summary").asText(""));
+        person.setType(node.path("type").asInt(0));
+        person.setLocked(false);
+        List<String> careers = new ArrayList<>();
+        node.path("career").forEach(career -> careers.add(career.asText()));
+        person.setCareer(careers);
+        return person;
+    }
+
+    private static ApiCharacterDTO toCharacter(JsonNode node, int relation) {
+        ApiCharacterDTO character = new ApiCharacterDTO();
+        character.setId(node.path("id").asLong());
+        character.setName(node.path("name").asText(""));
+        character.setSummary(node.path("summary").asText(""));
+        character.setType(node.path("role").asInt(0));
+        character.setRelation(RELATIONS.getOrDefault(relation, ""));
+        return character;
+    }
+
+    private static ApiEpisodeDTO toEpisode(JsonNode node) {
+        ApiEpisodeDTO episode = new ApiEpisodeDTO();
+        episode.setId(node.path("id").asLong());
+        episode.setEp(node.path("sort").asInt(0));
+        episode.setName(node.path("name").asText(""));
+        episode.setNameCn(node.path("name_cn").asText(""));
+        episode.setAirdate(node.path("airdate").asText(""));
+        episode.setDuration(node.path("duration").asText(""));
+        episode.setDesc(node.path("description").asText(""));
+        return episode;
+    }
+
+    /**
+     * 把 wiki 格式的 Infobox 转换为 API 返回的结构：
+     * 单值为字符串，多值（{ [a] [k|v] }）为 {v} / {k, v} 对象数组。
+     */
+    static List<ApiInfoboxDTO> parseInfobox(String wiki) {
+        List<ApiInfoboxDTO> items = new ArrayList<>();
+        ArrayNode values = null;
+        for (String rawLine : wiki.split("\\r?\\n")) {
+            String line = rawLine.trim();
+            if (values != null) {
+                if (line.equals("}")) {
+                    values = null;
+                } else if (line.startsWith("[") && line.endsWith("]")) {
+                    String content = line.substring(1, line.length() - 1);
+                    ObjectNode value = values.addObject();
+                    int separator = content.indexOf('|');
+                    if (separator >= 0) {
+                        value.put("k", content.substring(0, separator).trim());
+                        value.put("v", content.substring(separator + 1).trim());
+                    } else {
+                        value.put("v", content.trim());
+                    }
+                }
+                continue;
+            }
+            int equals = line.indexOf('=');
+            if (!line.startsWith("|") || equals < 0) {
+                continue; // {{Infobox ...}} 的首尾行
+            }
+            ApiInfoboxDTO item = new ApiInfoboxDTO();
+            item.setKey(line.substring(1, equals).trim());
+            String value = line.substring(equals + 1).trim();
+            if (value.equals("{")) {
+                values = JsonNodeFactory.instance.arrayNode();
+                item.setValue(values);
+            } else {
+                item.setValue(TextNode.valueOf(value));
+            }
+            items.add(item);
+        }
+        return items;
+    }
+
+    /**
+     * 从 zip 中逐行读取一个 JSON Lines 文件，文件名按后缀匹配，兼容带目录前缀的压缩包。
+     */
+    private void forEachLine(ZipFile zip, String fileName, Consumer<JsonNode> consumer) throws IOException {
+        ZipEntry entry = zip.stream()
+                .filter(candidate -> !candidate.isDirectory())
+                .filter(candidate -> candidate.getName().equals(fileName) || candidate.getName().endsWith("/" + fileName))
+                .findFirst()
+                .orElse(null);
+        if (entry == null) {
+            log.warn("数据包中没有 {}，跳过", fileName);
+            return;
+        }
+        long start = System.nanoTime();
+        long lines = 0;
+        try (InputStream in = zip.getInputStream(entry);
+             MappingIterator<JsonNode> iterator = lineReader.readValues(in)) {
+            while (iterator.hasNext()) {
+                consumer.accept(iterator.next());
+                lines++;
+            }
+        }
+        log.info("已读取 {}: {} 行, 用时 {}ms", fileName, lines, (System.nanoTime() - start) / 1_000_000);
+    }
+}
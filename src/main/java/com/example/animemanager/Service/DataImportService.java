@@ -1,92 +1,246 @@
 package com.example.animemanager.Service;
 
-import com.example.animemanager.DTO.ImportDTO;
-import com.example.animemanager.Entity.*;
-import com.example.animemanager.Entity.Character;
+import com.example.animemanager.DTO.*;
+import com.example.animemanager.Entity.Episode;
+import com.example.animemanager.Entity.HttpValidator;
+import com.example.animemanager.Entity.ImportJournal;
+import com.example.animemanager.Entity.SyncCheckpoint;
 import com.example.animemanager.Repository.*;
+import com.example.animemanager.Util.AsyncApiClient;
+import com.example.animemanager.Util.CancellationToken;
+import com.example.animemanager.Util.ImportExecutor;
+import com.example.animemanager.Util.ImportMetrics;
+import com.example.animemanager.Util.ImportSettings;
 import com.example.animemanager.Util.JsonConfigUtil;
+import com.example.animemanager.Util.RefreshPolicy;
+import com.example.animemanager.Util.ResponseCache;
+import com.example.animemanager.Util.StripedLock;
+import com.example.animemanager.Util.TokenBucketRateLimiter;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JavaType;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
-import org.springframework.context.annotation.Lazy;
+import io.micrometer.core.instrument.binder.httpcomponents.hc5.PoolingHttpClientConnectionManagerMetricsBinder;
+import org.apache.hc.client5.http.classic.methods.HttpUriRequestBase;
+import org.apache.hc.client5.http.config.ConnectionConfig;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.hc.client5.http.impl.classic.HttpClients;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManagerBuilder;
+import org.apache.hc.core5.http.ClassicHttpRequest;
+import org.apache.hc.core5.io.CloseMode;
+import org.apache.hc.core5.util.TimeValue;
+import org.apache.hc.core5.util.Timeout;
 import org.springframework.http.*;
-import org.springframework.transaction.annotation.Propagation;
+import org.springframework.web.client.HttpClientErrorException;
 import org.springframework.web.client.RestTemplate;
+import org.springframework.http.client.ClientHttpRequestFactory;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
 import org.springframework.http.client.SimpleClientHttpRequestFactory;
 import org.springframework.transaction.annotation.Transactional;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
-import org.springframework.jdbc.core.JdbcTemplate;
-import org.springframework.jdbc.core.BatchPreparedStatementSetter;
 
-import java.sql.PreparedStatement;
-import java.sql.SQLException;
-import java.text.ParseException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.time.format.DateTimeParseException;
 import java.util.*;
 import java.util.concurrent.*;
-import java.util.stream.Collectors;
 
 @Slf4j
 @Service
 public class DataImportService {
     private final SubjectRepository subjectRepository;
-    private final CharacterRepository characterRepository;
-    private final PersonRepository personRepository;
-    private final EpisodeRepository episodeRepository;
-    private final InfoboxRepository infoboxRepository;
+    private final HttpValidatorRepository httpValidatorRepository;
+    private final SyncCheckpointRepository syncCheckpointRepository;
+    private final ImportParserService importParserService;
+    private final ImportPersistenceService importPersistenceService;
+    private final ImportJournalService importJournalService;
 
     private final RestTemplate restTemplate;
-    private final ExecutorService executor;
+    private final ExecutorService coordinator;
+    private final ImportExecutor importExecutor;
+    private final TokenBucketRateLimiter rateLimiter;
+    private final ResponseCache responseCache; // 未启用时为 null
+    private PoolingHttpClientConnectionManager connectionManager; // simple 模式下为 null
+    private CloseableHttpClient httpClient;
+    private final AsyncApiClient asyncApiClient; // 仅 async 引擎使用，否则为 null
+    private volatile ImportMetrics currentMetrics = new ImportMetrics("idle");
+    private volatile CancellationToken currentCancellation = new CancellationToken();
+    // 各线程正在进行的同步请求及其中止方法，取消导入时关闭这些连接
+    private final Map<Thread, Runnable> inFlightRequests = new ConcurrentHashMap<>();
     private String accessToken;
     private boolean hasToken = false;
 
     // 配置常量
-    private static final int BATCH_SIZE = 10;
-    private static final long REQUEST_TIMEOUT = 60000;
     private static final int MAX_RETRIES = 3;
-    private static final long BATCH_INTERVAL_MS = 5000;
-    private static final long REQUEST_INTERVAL_MS = 2000;
-
-    @Autowired
-    @Lazy
-    private DataImportService self;
-    private final Object SHARED_ENTITY_LOCK = new Object();
-    private final ObjectMapper objectMapper = new ObjectMapper();
-
-    @Autowired
-    private JdbcTemplate jdbcTemplate;  // 用于执行 MERGE 操作
+    private static final Duration DEFAULT_RETRY_AFTER = Duration.ofSeconds(10);
+    private static final int ANIME_SUBJECT_TYPE = 2;
+    private static final int ENTITY_LOCK_STRIPES = 16384;
+    private static final int JOURNAL_FLUSH_SIZE = 20;
+
+    // 按人员 / 角色 ID 分段加锁，共享实体的条目互斥写入，其余条目并行；
+    // 一个条目约有几十个人员与角色，分段足够多时不相关的条目很少落在同一段
+    private final StripedLock entityLocks = new StripedLock(ENTITY_LOCK_STRIPES);
+    private final ObjectMapper objectMapper = new ObjectMapper()
+            .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+    private final boolean streamDecoding = !"tree".equalsIgnoreCase(ImportSettings.decodeMode());
+    private final String apiHost = ImportSettings.apiHost();
+    private final boolean replay = ImportSettings.replay();
+    private final boolean conditionalRequests = ImportSettings.conditionalRequests() && !replay;
+
+    // 各接口响应对应的 DTO 类型
+    private final JavaType subjectType = objectMapper.constructType(ApiSubjectDTO.class);
+    private final JavaType personListType = objectMapper.getTypeFactory()
+            .constructCollectionType(List.class, ApiPersonDTO.class);
+    private final JavaType characterListType = objectMapper.getTypeFactory()
+            .constructCollectionType(List.class, ApiCharacterDTO.class);
+    private final JavaType episodePageType = objectMapper.getTypeFactory()
+            .constructParametricType(ApiPageDTO.class, ApiEpisodeDTO.class);
+    private final JavaType collectionPageType = objectMapper.getTypeFactory()
+            .constructParametricType(ApiPageDTO.class, ApiCollectionDTO.class);
 
     @Autowired
     public DataImportService(
             SubjectRepository subjectRepository,
-            CharacterRepository characterRepository,
-            PersonRepository personRepository,
-            EpisodeRepository episodeRepository,
-            InfoboxRepository infoboxRepository) {
+            HttpValidatorRepository httpValidatorRepository,
+            SyncCheckpointRepository syncCheckpointRepository,
+            ImportParserService importParserService,
+            ImportPersistenceService importPersistenceService,
+            ImportJournalService importJournalService) {
         this.subjectRepository = subjectRepository;
-        this.characterRepository = characterRepository;
-        this.personRepository = personRepository;
-        this.episodeRepository = episodeRepository;
-        this.infoboxRepository = infoboxRepository;
+        this.httpValidatorRepository = httpValidatorRepository;
+        this.syncCheckpointRepository = syncCheckpointRepository;
+        this.importParserService = importParserService;
+        this.importPersistenceService = importPersistenceService;
+        this.importJournalService = importJournalService;
         // 1. 初始化令牌
         initializeToken();
 
-        // 2. 配置线程池
-        int corePoolSize = Math.min(4, Runtime.getRuntime().availableProcessors());
-        int maxPoolSize = corePoolSize * 2;
-        this.executor = new ThreadPoolExecutor(
-                corePoolSize,
-                maxPoolSize,
-                60L, TimeUnit.SECONDS,
-                new LinkedBlockingQueue<>(100),
-                new ThreadPoolExecutor.CallerRunsPolicy()
-        );
+        // 2. 配置执行器：调度线程与流水线工作线程分开，避免外层任务占用工作线程
+        this.coordinator = Executors.newSingleThreadExecutor(r -> {
+            Thread thread = new Thread(r, "import-coordinator");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.importExecutor = new ImportExecutor(
+                ImportExecutor.parseMode(ImportSettings.executorMode()),
+                ImportSettings.poolSize(),
+                ImportSettings.maxRequestsPerHost(),
+                ImportSettings.maxDatabaseConnections());
 
         // 3. 配置RestTemplate
-        SimpleClientHttpRequestFactory factory = new SimpleClientHttpRequestFactory();
-        factory.setConnectTimeout(10000);
-        factory.setReadTimeout(60000);
-        this.restTemplate = new RestTemplate(factory);
+        this.restTemplate = new RestTemplate(createRequestFactory());
+
+        // 4. 配置全局令牌桶，所有API请求共享
+        double requestsPerMinute = ImportSettings.requestsPerMinute(hasToken);
+        this.rateLimiter = new TokenBucketRateLimiter(requestsPerMinute, ImportSettings.burstSize(hasToken));
+        log.info("API限流: {} 次/分钟，突发上限 {}", requestsPerMinute, ImportSettings.burstSize(hasToken));
+
+        // 5. 配置原始响应缓存，回放模式必须启用
+        this.responseCache = createResponseCache();
+
+        // 6. 异步引擎与同步路径共用令牌桶、缓存和指标
+        if ("async".equalsIgnoreCase(ImportSettings.importEngine())) {
+            this.asyncApiClient = new AsyncApiClient(ImportSettings.asyncThreads(), objectMapper, rateLimiter,
+                    responseCache, () -> currentMetrics, () -> currentCancellation, MAX_RETRIES, DEFAULT_RETRY_AFTER);
+            log.info("导入引擎: 异步（{} 个线程，最多 {} 个条目在途）",
+                    ImportSettings.asyncThreads(), ImportSettings.asyncMaxInFlight());
+        } else {
+            this.asyncApiClient = null;
+        }
+    }
+
+    /**
+     * pooled 模式使用连接池复用 TCP/TLS 连接，并自动发送 Accept-Encoding: gzip、
+     * 边读边解压响应体；simple 模式保留原先的 HttpURLConnection 实现用于对比。
+     */
+    private ClientHttpRequestFactory createRequestFactory() {
+        if ("simple".equalsIgnoreCase(ImportSettings.httpClient())) {
+            SimpleClientHttpRequestFactory factory = new SimpleClientHttpRequestFactory() {
+                @Override
+                protected void prepareConnection(HttpURLConnection connection, String httpMethod)
+                        throws IOException {
+                    super.prepareConnection(connection, httpMethod);
+                    registerAbort(connection::disconnect);
+                }
+            };
+            factory.setConnectTimeout(10000);
+            factory.setReadTimeout(60000);
+            log.info("HTTP客户端: HttpURLConnection");
+            return factory;
+        }
+
+        // 并发请求数已由主机许可限制，连接数与之相同即可全部复用
+        int perHost = Math.max(1, ImportSettings.maxRequestsPerHost());
+        this.connectionManager = PoolingHttpClientConnectionManagerBuilder.create()
+                .setMaxConnPerRoute(perHost)
+                .setMaxConnTotal(perHost * 2)
+                .setDefaultConnectionConfig(ConnectionConfig.custom()
+                        .setConnectTimeout(Timeout.ofSeconds(10))
+                        .setSocketTimeout(Timeout.ofSeconds(60))
+                        .setTimeToLive(TimeValue.ofMinutes(5))
+                        .build())
+                .build();
+        this.httpClient = HttpClients.custom()
+                .setConnectionManager(connectionManager)
+                .evictExpiredConnections()
+                .evictIdleConnections(TimeValue.ofSeconds(ImportSettings.httpIdleSeconds()))
+                .build();
+        log.info("HTTP客户端: 连接池（每主机 {} 个连接，gzip 压缩）", perHost);
+        return new HttpComponentsClientHttpRequestFactory(httpClient) {
+            @Override
+            protected ClassicHttpRequest createHttpUriRequest(HttpMethod httpMethod, URI uri) {
+                ClassicHttpRequest request = super.createHttpUriRequest(httpMethod, uri);
+                if (request instanceof HttpUriRequestBase cancellable) {
+                    registerAbort(cancellable::cancel); // 关闭该请求租用的连接，阻塞的读写立即失败
+                }
+                return request;
+            }
+        };
+    }
+
+    /**
+     * 登记当前线程即将发出的请求，请求结束后在 {@link #fetchJsonData} 中移除。
+     */
+    private void registerAbort(Runnable abort) {
+        inFlightRequests.put(Thread.currentThread(), abort);
+        if (currentCancellation.isCancelled()) {
+            abort.run();
+        }
+    }
+
+    private void abortRequests() {
+        inFlightRequests.values().forEach(Runnable::run);
+        if (asyncApiClient != null) {
+            asyncApiClient.abort();
+        }
+    }
+
+    private ResponseCache createResponseCache() {
+        if (!ImportSettings.cacheEnabled() && !replay) {
+            return null;
+        }
+        Path directory = Path.of(ImportSettings.cacheDirectory());
+        try {
+            ResponseCache cache = new ResponseCache(directory,
+                    ImportSettings.cacheMaxMegabytes() * 1024 * 1024,
+                    Duration.ofHours(ImportSettings.cacheTtlHours()));
+            log.info("已启用响应缓存: {}{}", directory, replay ? "（回放模式，不访问网络）" : "");
+            return cache;
+        } catch (IOException e) {
+            log.error("初始化响应缓存失败: {}", e.getMessage());
+            return null;
+        }
     }
 
     private void initializeToken() {
@@ -119,37 +273,67 @@ public class DataImportService {
         return headers;
     }
 
-    public CompletableFuture<Void> startCollect() {
-        log.info("接收到数据导入请求，准备在后台线程池执行...");
+    public ImportHandle startCollect() {
+        return startCollect(ImportSettings.forceRefresh());
+    }
+
+    /**
+     * @param forceRefresh 为 true 时忽略同步进度与刷新周期，完整扫描收藏并刷新库中全部条目
+     * @return 导入句柄，可等待导入结束或中途取消
+     */
+    public ImportHandle startCollect(boolean forceRefresh) {
+        log.info("接收到数据导入请求，准备在后台线程执行...{}", forceRefresh ? "（强制全量刷新）" : "");
+        CancellationToken cancellation = new CancellationToken();
 
-        // 使用类内部已配置好的 executor 线程池来执行
-        return CompletableFuture.runAsync(() -> {
+        // 使用独立的调度线程执行，流水线工作线程另由 importExecutor 创建
+        CompletableFuture<Void> completion = CompletableFuture.runAsync(() -> {
             try {
                 // 调用核心的数据导入方法
-                this.DataImport();
+                this.DataImport(forceRefresh, cancellation);
             } catch (Exception e) {
                 log.error("后台数据导入过程中发生异常", e);
                 throw new RuntimeException(e);
             }
-        }, this.executor).whenComplete((result, ex) -> {
+        }, this.coordinator).whenComplete((result, ex) -> {
             // 任务执行完成后的回调处理
             if (ex != null) {
                 log.error("!!! 数据导入任务失败: {}", ex.getMessage());
+            } else if (cancellation.isCancelled()) {
+                log.info("=== 数据导入任务已取消 ===");
             } else {
                 log.info("=== 数据导入任务已全部顺利完成 ===");
             }
         });
+        return new ImportHandle(completion, cancellation);
     }
 
     public void DataImport() {
+        DataImport(ImportSettings.forceRefresh());
+    }
+
+    public void DataImport(boolean forceRefresh) {
+        DataImport(forceRefresh, new CancellationToken());
+    }
+
+    /**
+     * @param cancellation 取消后中止进行中的请求与等待，已抓取的条目写库后结束，
+     *                     导入日志保持进行中，下次同步从中断处继续
+     */
+    public void DataImport(boolean forceRefresh, CancellationToken cancellation) {
         log.info(">>> 开始执行后台数据同步任务");
+        currentCancellation = cancellation;
+        cancellation.onCancel(this::abortRequests);
+        if (cancellation.isCancelled()) {
+            log.info("导入在开始前已取消");
+            return;
+        }
 
         // 检查令牌状态
         if (!hasToken) {
-            log.warn("当前未使用API令牌，同步速度将较慢（约18次/分钟）");
+            log.warn("当前未使用API令牌，同步速度将较慢（约{}次/分钟）", ImportSettings.requestsPerMinute(false));
             log.warn("建议添加API令牌以提高效率");
         } else {
-            log.info("使用API令牌，请求频率较高（约60次/分钟）");
+            log.info("使用API令牌，请求频率较高（约{}次/分钟）", ImportSettings.requestsPerMinute(true));
         }
 
         String username = JsonConfigUtil.readUser("Data/config.json");
@@ -161,242 +345,715 @@ public class DataImportService {
         }
 
         try {
+            // 收藏列表请求也计入本次导入的指标
+            String engine = asyncApiClient != null ? "ASYNC" : importExecutor.getMode().name();
+            ImportMetrics metrics = new ImportMetrics(engine + "/" + (streamDecoding ? "stream" : "tree")
+                    + (replay ? "/replay" : ""));
+            currentMetrics = metrics;
+            if (connectionManager != null) {
+                // 连接池的租用 / 空闲 / 等待连接数随本次导入的其他指标一起导出
+                new PoolingHttpClientConnectionManagerMetricsBinder(connectionManager, "bangumi")
+                        .bindTo(metrics.registry());
+            }
+
             log.info("正在获取用户 [{}] 的收藏列表...", username);
-            List<Long> subjectIds = getUserCollectionSubjectIds(username);
+            // 强制全量刷新时不使用同步进度，从头扫描整个收藏列表
+            SyncCheckpoint checkpoint = ImportSettings.incrementalSync() && !forceRefresh
+                    ? syncCheckpointRepository.findById(username).orElse(null) : null;
+            // 上次导入中断时从日志续传：收藏列表从中断的页继续扫描，已完成的条目不再处理
+            ImportJournal journal = importJournalService.open(username);
+            CollectionSyncDTO collection;
+            if (Boolean.TRUE.equals(journal.getCollectionComplete())) {
+                log.info("收藏列表在上次导入中已扫描完成，直接处理剩余条目");
+                collection = new CollectionSyncDTO();
+                collection.setComplete(true);
+            } else {
+                collection = getUserCollectionSubjectIds(username, checkpoint, journal);
+            }
+            if (cancellation.isCancelled()) {
+                log.info("导入已取消，下次同步从偏移量 {} 继续扫描收藏", journal.getCollectionOffset());
+                return;
+            }
+            collection.setNewestUpdatedAt(journal.getNewestUpdatedAt());
+            // 库中超过刷新周期的条目也加入待处理列表，与收藏变化的条目一起处理
+            Map<Long, SubjectSyncStateDTO> library = loadSyncStates();
+            RefreshPolicy refreshPolicy = RefreshPolicy.fromSettings();
+            LocalDateTime now = LocalDateTime.now();
+            List<Long> due = new ArrayList<>();
+            library.values().forEach(state -> {
+                if (forceRefresh || refreshPolicy.isStale(state.getDate(), state.getLastSyncedAt(), now)) {
+                    due.add(state.getId());
+                }
+            });
+            importJournalService.plan(username, due);
+            log.info("库中 {} 个条目中有 {} 个需要刷新评分", library.size(), due.size());
+            // 待处理条目以日志为准，包括之前失败、仍可重试的条目
+            List<Long> subjectIds = importJournalService.pendingSubjectIds(username);
+            if (!forceRefresh) {
+                subjectIds = skipFreshSubjects(username, subjectIds, library, refreshPolicy, now, metrics);
+            }
             int total = subjectIds.size();
             log.info("获取完成，共需同步 {} 个动漫条目", total);
             if (total == 0) {
                 log.info("未找到需要同步的动漫条目");
+                finishJournal(username, checkpoint, collection, journal);
                 return;
             }
 
-            // 分批处理
-            processSubjectsInBatches(subjectIds);
+            // 抓取 → 解析 → 持久化 流水线处理
+            metrics.setPlanned(total);
+            // 人员 / 角色 ID 缓存在本次导入的所有条目间共享，导入结束即丢弃
+            importPersistenceService.openIdCaches(metrics);
+            // 已入库的条目在加载同步状态时一并查出，抓取阶段不再逐条 existsById
+            Set<Long> existingSubjects = library.keySet();
+            log.info("其中 {} 个已在库中，仅更新评分", subjectIds.stream().filter(existingSubjects::contains).count());
+            Set<Long> notModifiedIds = ConcurrentHashMap.newKeySet();
+            // 异步引擎的在途条目都可能停留在队列中，队列容量不小于在途上限
+            int queueCapacity = asyncApiClient != null
+                    ? Math.max(ImportSettings.queueCapacity(), ImportSettings.asyncMaxInFlight())
+                    : ImportSettings.queueCapacity();
+            ImportPipeline pipeline = new ImportPipeline(importExecutor, metrics,
+                    ImportSettings.fetchWorkers(), ImportSettings.parseWorkers(),
+                    ImportSettings.persistWorkers(), queueCapacity,
+                    ImportSettings.persistGroupSize(), ImportSettings.persistGroupWaitMs(),
+                    subjectId -> {
+                        ImportDTO dto = fetchSubject(subjectId, library.get(subjectId), refreshPolicy);
+                        if (dto != null && dto.isNotModified()) {
+                            notModifiedIds.add(subjectId);
+                        }
+                        return dto;
+                    },
+                    this::parseSubject, this::persistGroup);
+            metrics.bindQueueDepths(pipeline::fetchedQueueSize, pipeline::parsedQueueSize);
+            pipeline.setCancellation(cancellation);
+            Map<Long, String> outcomes = new LinkedHashMap<>();
+            Set<Long> replayFailures = ConcurrentHashMap.newKeySet();
+            pipeline.onFinished((subjectId, success, reason) -> {
+                if (!success && cancellation.isCancelled()) {
+                    return; // 因取消而中止的条目保持待处理，不计失败次数
+                }
+                if (!success && replay) {
+                    replayFailures.add(subjectId);
+                }
+                synchronized (outcomes) {
+                    outcomes.put(subjectId, success ? null : reason);
+                    if (outcomes.size() >= JOURNAL_FLUSH_SIZE) {
+                        flushOutcomes(username, outcomes);
+                    }
+                }
+            });
+            if (asyncApiClient != null) {
+                // 抓取阶段换成非阻塞请求，解析与写库沿用同一套流水线和持久化代码
+                pipeline.runAsync(subjectIds, subjectId -> fetchSubjectAsync(subjectId, library.get(subjectId),
+                        refreshPolicy).thenApply(dto -> {
+                            if (dto != null && dto.isNotModified()) {
+                                notModifiedIds.add(subjectId);
+                            }
+                            return dto;
+                        }), ImportSettings.asyncMaxInFlight());
+            } else {
+                pipeline.run(subjectIds);
+            }
+            metrics.finish();
+            synchronized (outcomes) {
+                flushOutcomes(username, outcomes);
+            }
+            // 304 的条目确认未变化，同样记为已同步
+            importPersistenceService.markSynced(notModifiedIds);
+            if (cancellation.isCancelled()) {
+                // 已写库的条目记为完成，其余条目留在日志中，同步进度不推进
+                log.info("导入已取消，下次同步从中断处继续");
+            } else if (!replayFailures.isEmpty()) {
+                // 回放无法补齐缺失的响应，同步进度不推进，整个导入按失败结束
+                throw new ReplayIncompleteException(replayFailures);
+            } else {
+                // 失败条目留在日志中由下次同步重试，同步进度照常推进
+                finishJournal(username, checkpoint, collection, journal);
+            }
 
+            log.info("导入统计: {}", metrics.summary());
+            log.info("请求与阶段耗时: {}", metrics.latencySummary());
+            if (connectionManager != null) {
+                log.info("HTTP连接池: {}", connectionManager.getTotalStats());
+            }
             log.info("<<< 所有数据导入任务完成");
+        } catch (ReplayIncompleteException e) {
+            log.error(e.getMessage());
+            throw e;
         } catch (Exception e) {
             log.error("导入主流程异常", e);
+        } finally {
+            importPersistenceService.closeIdCaches();
+            // 导入之外的请求（如离线数据包导入时扫描收藏）不受本次取消的影响
+            currentCancellation = new CancellationToken();
         }
     }
 
-    private void processSubjectsInBatches(List<Long> subjectIds) {
-        List<List<Long>> batches = partitionList(subjectIds, BATCH_SIZE);
-        int batchCount = batches.size();
+    public ImportMetrics getCurrentMetrics() {
+        return currentMetrics;
+    }
 
-        for (int i = 0; i < batchCount; i++) {
-            log.info("处理批次 {}/{}", i + 1, batchCount);
-            List<Long> batch = batches.get(i);
+    /**
+     * 流水线抓取阶段：已存在的条目只拉取主条目用于更新评分，放送中的条目再补拉角色与剧集，
+     * 新条目拉取完整数据。
+     *
+     * @param state 条目在库中的同步状态，新条目为 null
+     */
+    private ImportDTO fetchSubject(Long subjectId, SubjectSyncStateDTO state, RefreshPolicy refreshPolicy)
+            throws Exception {
+        log.info("开始处理 SubjectID: {}", subjectId);
+
+        // 【核心优化点】：前置数据库校验（流水线启动前已批量查询）
+        if (state == null) {
+            log.info("动漫 {} 不存在，准备获取完整数据", subjectId);
+            return fetchSubjectDataParallel(subjectId);
+        }
 
-            List<CompletableFuture<Void>> futures = batch.stream()
-                    .map(this::processSingleSubjectWithTimeout)
-                    .collect(Collectors.toList());
+        // 如果已存在，仅拉取主条目并更新，大幅节省网络IO
+        log.info("动漫 {} 已存在，仅获取主数据进行更新", subjectId);
+        String url = apiHost + "/subjects/" + subjectId;
+        HttpHeaders headers = updateHeaders(url, state);
+        ApiResponseDTO<ApiSubjectDTO> response = fetchResponseWithRetry(url, headers, subjectType, MAX_RETRIES);
+        if (response == null) {
+            log.warn("更新时获取 SubjectID: {} 主数据失败", subjectId);
+            return null;
+        }
+        ImportDTO dto = updateDto(subjectId, url, response);
+        if (needsDelta(dto, state, refreshPolicy)) {
+            return fetchDeltaParts(dto) ? dto : null;
+        }
+        return dto;
+    }
 
-            try {
-                // 等待当前批次完成
-                CompletableFuture.allOf(futures.toArray(new CompletableFuture[0]))
-                        .get(REQUEST_TIMEOUT * batch.size(), TimeUnit.MILLISECONDS);
-                log.info("批次 {}/{} 处理完成", i + 1, batchCount);
-            } catch (TimeoutException e) {
-                log.error("批次 {} 处理超时", i + 1);
-            } catch (Exception e) {
-                log.error("批次 {} 处理异常: {}", i + 1, e.getMessage());
-            }
+    // 带上次保存的 ETag / Last-Modified 发送条件请求，未变化时服务器返回 304；需要补齐剧集的条目总是完整请求
+    private HttpHeaders updateHeaders(String url, SubjectSyncStateDTO state) throws Exception {
+        HttpHeaders headers = createHeaders();
+        if (conditionalRequests && !needsRefill(state)) {
+            HttpValidator stored = callWithDatabasePermit(() -> httpValidatorRepository.findById(url).orElse(null));
+            applyValidator(headers, stored);
+        }
+        return headers;
+    }
 
-            // 批次间间隔，避免API限制
-            if (i < batchCount - 1) {
-                try {
-                    Thread.sleep(BATCH_INTERVAL_MS);
-                } catch (InterruptedException e) {
-                    Thread.currentThread().interrupt();
-                }
-            }
+    private ImportDTO updateDto(Long subjectId, String url, ApiResponseDTO<ApiSubjectDTO> response) {
+        ImportDTO dto = new ImportDTO();
+        dto.setSubjectId(subjectId);
+        dto.setUpdate(true);
+        if (response.isNotModified()) {
+            log.info("动漫 {} 未变化(304)", subjectId);
+            currentMetrics.recordNotModified();
+            dto.setNotModified(true); // 需要增量同步时再清除
+        } else {
+            dto.setSubject(response.getBody());
+            dto.setValidator(toValidator(url, response));
         }
+        return dto;
     }
 
-    private <T> List<List<T>> partitionList(List<T> list, int size) {
-        List<List<T>> partitions = new ArrayList<>();
-        for (int i = 0; i < list.size(); i += size) {
-            partitions.add(list.subList(i, Math.min(i + size, list.size())));
+    /**
+     * 放送中的条目需要增量同步剧集与角色。剧集与角色是独立的接口，
+     * 主条目 304 时仍可能有新剧集，此时同样需要同步。
+     */
+    private boolean needsDelta(ImportDTO dto, SubjectSyncStateDTO state, RefreshPolicy refreshPolicy) {
+        int totalEpisodes = Math.max(state.getEps() != null ? state.getEps() : 0,
+                dto.getSubject() != null && dto.getSubject().getEps() != null ? dto.getSubject().getEps() : 0);
+        int localEpisodes = state.getEpisodeCount() != null ? state.getEpisodeCount() : 0;
+        if (needsRefill(state)) {
+            log.info("动漫 {} 上次没有完整导入（本地 {} 集{}），补齐剧集、角色与图片", dto.getSubjectId(), localEpisodes,
+                    state.getCover() == null ? "，无封面" : "");
+            dto.setRefill(true);
+        } else if (ImportSettings.deltaSync()
+                && refreshPolicy.isAiring(state.getDate(), totalEpisodes, localEpisodes, LocalDate.now())) {
+            log.info("动漫 {} 放送中（本地 {}/{} 集），增量同步剧集与角色", dto.getSubjectId(), localEpisodes, totalEpisodes);
+        } else {
+            return false;
         }
-        return partitions;
+        dto.setNotModified(false);
+        dto.setDelta(true);
+        return true;
     }
 
-    private CompletableFuture<Void> processSingleSubjectWithTimeout(Long subjectId) {
-        return CompletableFuture.runAsync(() -> processSingleSubject(subjectId), executor)
-                .orTimeout(REQUEST_TIMEOUT, TimeUnit.MILLISECONDS)
-                .exceptionally(e -> {
-                    log.error("处理Subject {} 超时或失败: {}", subjectId, e.getMessage());
-                    return null;
-                });
+    /**
+     * 没有完整导入过的条目没有同步时间：剧集分页写到一半失败的条目本地剧集少于总集数（总集数未定时同样视为不完整），
+     * 离线数据包导入的条目没有封面。
+     */
+    private static boolean needsRefill(SubjectSyncStateDTO state) {
+        if (state.getLastSyncedAt() != null) {
+            return false;
+        }
+        int totalEpisodes = state.getEps() != null ? state.getEps() : 0;
+        int localEpisodes = state.getEpisodeCount() != null ? state.getEpisodeCount() : 0;
+        return totalEpisodes <= 0 || localEpisodes < totalEpisodes || state.getCover() == null;
     }
 
-    private void processSingleSubject(Long subjectId) {
-        long startTime = System.currentTimeMillis();
-        try {
-            log.info("开始处理 SubjectID: {}", subjectId);
+    /**
+     * 增量同步只请求角色列表与剧集分页，不重新写入主条目；补齐时额外请求制作人员，用于补齐人员图片。
+     */
+    private boolean fetchDeltaParts(ImportDTO dto) {
+        Long subjectId = dto.getSubjectId();
+        HttpHeaders headers = createHeaders();
+        List<Callable<Void>> parts = new ArrayList<>();
+        if (dto.isRefill()) {
+            parts.add(() -> {
+                dto.setPersons(fetchRequiredPart(apiHost + "/subjects/" + subjectId + "/persons", headers,
+                        personListType));
+                return null;
+            });
+        }
+        parts.addAll(List.of(
+                () -> {
+                    dto.setCharacters(fetchRequiredPart(apiHost + "/subjects/" + subjectId + "/characters",
+                            headers, characterListType));
+                    return null;
+                },
+                () -> {
+                    dto.setEpisodes(fetchFirstEpisodePage(subjectId, headers));
+                    return null;
+                }));
+        return awaitParts(subjectId, parts);
+    }
 
-            // 【核心优化点】：前置数据库校验
-            if (subjectRepository.existsById(subjectId)) {
-                // 如果已存在，仅拉取主条目并更新，大幅节省网络IO和休眠时间
-                log.info("动漫 {} 已存在，仅获取主数据进行更新", subjectId);
-                self.updateExistingAnime(subjectId); // 通过 self 调用以保证事务生效
-            } else {
-                // 如果不存在，获取完整数据并插入
-                log.info("动漫 {} 不存在，准备获取完整数据", subjectId);
-                ImportDTO data = fetchSubjectDataParallel(subjectId);
-                if (data != null && data.getSubjectJson() != null) {
-                    self.importSingleAnimeData(data);
-                    log.info("SubjectID: {} 新增处理成功", subjectId);
-                } else {
-                    log.warn("SubjectID: {} 核心数据缺失，跳过", subjectId);
+    /**
+     * 异步引擎的抓取阶段，与 {@link #fetchSubject} 逻辑相同，但各请求通过 future 组合，
+     * 等待期间不占用线程。
+     */
+    private CompletableFuture<ImportDTO> fetchSubjectAsync(Long subjectId, SubjectSyncStateDTO state,
+                                                           RefreshPolicy refreshPolicy) throws Exception {
+        log.info("开始处理 SubjectID: {}（异步）", subjectId);
+        String url = apiHost + "/subjects/" + subjectId;
+
+        if (state == null) {
+            HttpHeaders headers = createHeaders();
+            return this.<ApiSubjectDTO>fetchAsync(url, headers, subjectType).thenCompose(subject -> {
+                if (subject == null || subject.getBody() == null) {
+                    log.warn("SubjectID: {} 主数据获取失败，终止后续请求", subjectId);
+                    return CompletableFuture.completedFuture(null);
                 }
+                ImportDTO dto = new ImportDTO();
+                dto.setSubjectId(subjectId);
+                dto.setSubject(subject.getBody());
+                dto.setValidator(toValidator(url, subject));
+
+                CompletableFuture<List<ApiPersonDTO>> persons = fetchBodyAsync(url + "/persons", headers,
+                        personListType);
+                CompletableFuture<List<ApiCharacterDTO>> characters = fetchBodyAsync(url + "/characters", headers,
+                        characterListType);
+                CompletableFuture<ApiPageDTO<ApiEpisodeDTO>> episodes = fetchFirstEpisodePageAsync(subjectId,
+                        headers);
+                return CompletableFuture.allOf(persons, characters, episodes).thenApply(ignored -> {
+                    if (persons.join() == null || characters.join() == null || episodes.join() == null) {
+                        log.warn("SubjectID: {} 获取数据失败", subjectId);
+                        return null;
+                    }
+                    dto.setPersons(persons.join());
+                    dto.setCharacters(characters.join());
+                    dto.setEpisodes(episodes.join());
+                    return dto;
+                });
+            });
+        }
+
+        return this.<ApiSubjectDTO>fetchAsync(url, updateHeaders(url, state), subjectType).thenCompose(response -> {
+            if (response == null) {
+                log.warn("更新时获取 SubjectID: {} 主数据失败", subjectId);
+                return CompletableFuture.completedFuture(null);
             }
-        } catch (Exception e) {
-            log.error("SubjectID: {} 处理失败: {}", subjectId, e.getMessage(), e);
-        } finally {
-            long duration = System.currentTimeMillis() - startTime;
-            log.debug("Subject {} 处理耗时: {}ms", subjectId, duration);
+            ImportDTO dto = updateDto(subjectId, url, response);
+            if (!needsDelta(dto, state, refreshPolicy)) {
+                return CompletableFuture.completedFuture(dto);
+            }
+            HttpHeaders headers = createHeaders();
+            CompletableFuture<List<ApiPersonDTO>> persons = dto.isRefill()
+                    ? fetchBodyAsync(url + "/persons", headers, personListType)
+                    : CompletableFuture.completedFuture(List.of());
+            CompletableFuture<List<ApiCharacterDTO>> characters = fetchBodyAsync(url + "/characters", headers,
+                    characterListType);
+            CompletableFuture<ApiPageDTO<ApiEpisodeDTO>> episodes = fetchFirstEpisodePageAsync(subjectId, headers);
+            return CompletableFuture.allOf(persons, characters, episodes).thenApply(ignored -> {
+                if (persons.join() == null || characters.join() == null || episodes.join() == null) {
+                    log.warn("SubjectID: {} 增量数据获取失败", subjectId);
+                    return null;
+                }
+                dto.setPersons(persons.join());
+                dto.setCharacters(characters.join());
+                dto.setEpisodes(episodes.join());
+                return dto;
+            });
+        });
+    }
+
+    private <T> CompletableFuture<ApiResponseDTO<T>> fetchAsync(String url, HttpHeaders headers, JavaType type) {
+        if (replay) {
+            return CompletableFuture.completedFuture(replayFromCache(url, type));
         }
+        return asyncApiClient.fetch(url, headers, type);
     }
 
-    @Transactional
-    public void updateExistingAnime(Long subjectId) throws Exception {
-        String host = "https://api.bgm.tv/v0";
-        HttpHeaders headers = createHeaders();
+    private <T> CompletableFuture<T> fetchBodyAsync(String url, HttpHeaders headers, JavaType type) {
+        return this.<T>fetchAsync(url, headers, type).thenApply(response -> response != null ? response.getBody() : null);
+    }
 
-        // 只请求主条目数据
-        String subjectJson = fetchJsonDataWithRetry(host + "/subjects/" + subjectId, headers, MAX_RETRIES);
-        if (subjectJson == null) {
-            log.warn("更新时获取 SubjectID: {} 主数据失败", subjectId);
+    private void applyValidator(HttpHeaders headers, HttpValidator validator) {
+        if (validator == null) {
             return;
         }
+        if (validator.getEtag() != null) {
+            headers.set(HttpHeaders.IF_NONE_MATCH, validator.getEtag());
+        }
+        if (validator.getLastModified() != null) {
+            headers.set(HttpHeaders.IF_MODIFIED_SINCE, validator.getLastModified());
+        }
+    }
 
-        JsonNode subjectNode = objectMapper.readTree(subjectJson);
-        Subject subject = subjectRepository.findById(subjectId).orElse(null);
+    // 响应没有任何校验信息时返回 null，不做保存
+    private HttpValidator toValidator(String url, ApiResponseDTO<?> response) {
+        if (!conditionalRequests || (response.getEtag() == null && response.getLastModified() == null)) {
+            return null;
+        }
+        HttpValidator validator = new HttpValidator();
+        validator.setUrl(url);
+        validator.setEtag(response.getEtag());
+        validator.setLastModified(response.getLastModified());
+        return validator;
+    }
 
-        if (subject == null) {
-            return;
+    private Map<Long, SubjectSyncStateDTO> loadSyncStates() {
+        Map<Long, SubjectSyncStateDTO> states = new HashMap<>();
+        for (SubjectSyncStateDTO state : subjectRepository.findSyncStates()) {
+            states.put(state.getId(), state);
         }
+        return states;
+    }
 
-        // 仅执行更新评分逻辑
-        JsonNode ratingNode = subjectNode.path("rating");
-        if (!ratingNode.isMissingNode() && !ratingNode.isEmpty()) {
-            Rating rating = subject.getRating();
-            if (rating == null) {
-                rating = new Rating();
+    /**
+     * 已在库中且未超过刷新周期的条目不发请求，直接在导入日志中记为完成。
+     */
+    private List<Long> skipFreshSubjects(String username, List<Long> subjectIds,
+                                         Map<Long, SubjectSyncStateDTO> library, RefreshPolicy refreshPolicy,
+                                         LocalDateTime now, ImportMetrics metrics) {
+        List<Long> remaining = new ArrayList<>();
+        Map<Long, String> skipped = new LinkedHashMap<>();
+        for (Long subjectId : subjectIds) {
+            SubjectSyncStateDTO state = library.get(subjectId);
+            if (state != null && !refreshPolicy.isStale(state.getDate(), state.getLastSyncedAt(), now)) {
+                skipped.put(subjectId, null);
+            } else {
+                remaining.add(subjectId);
             }
-            rating.setRank(ratingNode.path("rank").asInt());
-            rating.setTotal(ratingNode.path("total").asInt(0));
-            rating.setScore(ratingNode.path("score").asDouble(0.0));
-            // 保留原有其他属性
-            rating.setInformation(rating.getInformation() != null ? rating.getInformation() : 0.0);
-            rating.setStory(rating.getStory() != null ? rating.getStory() : 0.0);
-            rating.setCharacter(rating.getCharacter() != null ? rating.getCharacter() : 0.0);
-            rating.setQuality(rating.getQuality() != null ? rating.getQuality() : 0.0);
-            rating.setAtmosphere(rating.getAtmosphere() != null ? rating.getAtmosphere() : 0.0);
-            rating.setLove(rating.getLove() != null ? rating.getLove() : 0.0);
-            rating.setTotalscore(rating.getTotalscore() != null ? rating.getTotalscore() : 0.0);
-
-            subject.setRating(rating);
-            subjectRepository.save(subject);
-            log.info("动漫 {} 评分更新成功", subjectId);
         }
+        if (!skipped.isEmpty()) {
+            log.info("{} 个条目未到刷新周期，跳过请求", skipped.size());
+            metrics.recordSkipped(skipped.size());
+            flushOutcomes(username, skipped);
+        }
+        return remaining;
     }
 
-    private ImportDTO fetchSubjectDataParallel(Long subjectId) {
-        ImportDTO dto = new ImportDTO();
-        dto.setSubjectId(subjectId);
-        String host = "https://api.bgm.tv/v0";
-        HttpHeaders headers = createHeaders();
+    /**
+     * 流水线解析阶段，额外记录解析过程的内存分配量。
+     */
+    private ParsedSubjectDTO parseSubject(ImportDTO dto) {
+        long allocated = ImportMetrics.threadAllocatedBytes();
+        long parseStart = System.nanoTime();
+        ParsedSubjectDTO parsed = importParserService.parse(dto);
+        currentMetrics.recordParse(System.nanoTime() - parseStart);
+        if (allocated >= 0) {
+            currentMetrics.recordParseAllocation(ImportMetrics.threadAllocatedBytes() - allocated);
+        }
+        return parsed;
+    }
 
-        try {
-            // 1. 获取 Subject 主条目
-            String subjectJson = fetchJsonDataWithRetry(host + "/subjects/" + subjectId, headers, MAX_RETRIES);
-            dto.setSubjectJson(subjectJson);
+    /**
+     * 流水线持久化阶段，分组写库与整组失败后的逐条重试见 {@link ImportPersistenceService#persistWithFallback}。
+     * 每个条目在写入前各自尝试锁住自己的人员与角色，锁被其他线程持有的条目不等待，
+     * 推迟到本组提交后单独写入，一组条目不会因为其中一个而整体等待。
+     * 条目提交后再写入其余剧集分页。
+     */
+    private List<ParsedSubjectDTO> persistGroup(List<ParsedSubjectDTO> group) throws Exception {
+        List<ParsedSubjectDTO> failed = new ArrayList<>(importPersistenceService.persistWithFallback(group,
+                currentMetrics, this::persistLockedGroup, this::persistSubject));
+        List<ParsedSubjectDTO> committed = new ArrayList<>(group);
+        committed.removeAll(failed);
+        failed.addAll(persistRemainingEpisodes(committed));
+        return failed;
+    }
 
-            if (subjectJson == null) {
-                log.warn("SubjectID: {} 主数据获取失败，终止后续请求", subjectId);
-                return null;
+    // 返回因实体锁被占用而没有在本事务中写入的条目
+    private List<ParsedSubjectDTO> persistLockedGroup(List<ParsedSubjectDTO> group) throws Exception {
+        return callWithDatabasePermit(() -> {
+            List<ParsedSubjectDTO> deferred = new ArrayList<>();
+            List<StripedLock.Handle> held = new ArrayList<>();
+            // 锁在事务提交之后才释放
+            try {
+                long persistStart = System.nanoTime();
+                importPersistenceService.persistGroup(group, parsed -> {
+                    StripedLock.Handle handle = entityLocks.tryLockAll(sharedEntityIds(parsed));
+                    if (handle == null) {
+                        deferred.add(parsed);
+                        return false;
+                    }
+                    held.add(handle);
+                    return true;
+                });
+                currentMetrics.recordPersist(System.nanoTime() - persistStart);
+            } finally {
+                held.forEach(StripedLock.Handle::close);
             }
+            return deferred;
+        });
+    }
 
-            // 2. 获取 Persons (为了避免触发 API 速率限制，可以在此处微量休眠，但在单线程内休眠不会死锁)
-            smartSleep();
-            dto.setPersonJson(fetchJsonDataWithRetry(host + "/subjects/" + subjectId + "/persons", headers, MAX_RETRIES));
+    // 返回其余剧集分页写入失败的条目，条目本身已提交
+    private List<ParsedSubjectDTO> persistRemainingEpisodes(List<ParsedSubjectDTO> group) throws InterruptedException {
+        List<ParsedSubjectDTO> failed = new ArrayList<>();
+        for (ParsedSubjectDTO parsed : group) {
+            if (!parsed.hasRemainingEpisodes()) {
+                continue;
+            }
+            try {
+                persistRemainingEpisodes(parsed);
+            } catch (InterruptedException e) {
+                throw e;
+            } catch (Exception e) {
+                log.error("SubjectID: {} 剧集写入失败: {}", parsed.getSubjectId(), e.getMessage());
+                failed.add(parsed);
+            }
+        }
+        return failed;
+    }
 
-            // 3. 获取 Characters
-            smartSleep();
-            dto.setCharacterJson(fetchJsonDataWithRetry(host + "/subjects/" + subjectId + "/characters", headers, MAX_RETRIES));
+    private void persistSubject(ParsedSubjectDTO parsed) throws Exception {
+        callWithDatabasePermit(() -> {
+            long persistStart = System.nanoTime();
+            if (parsed.isDelta()) {
+                try (StripedLock.Handle ignored = entityLocks.lockAll(sharedEntityIds(parsed))) {
+                    importPersistenceService.syncSubjectDelta(parsed);
+                }
+            } else if (parsed.isUpdate()) {
+                importPersistenceService.updateSubject(parsed);
+            } else {
+                // 锁在事务提交之后才释放，其他条目读到的一定是已提交的人员与角色
+                try (StripedLock.Handle ignored = entityLocks.lockAll(sharedEntityIds(parsed))) {
+                    importPersistenceService.persistNewSubject(parsed);
+                }
+                log.info("SubjectID: {} 新增处理成功", parsed.getSubjectId());
+            }
+            currentMetrics.recordPersist(System.nanoTime() - persistStart);
+            return null;
+        });
+    }
 
-            // 4. 获取 Episodes
-            smartSleep();
-            dto.setEpisodeJson(fetchJsonDataWithRetry(host + "/episodes?subject_id=" + subjectId + "&limit=100", headers, MAX_RETRIES));
+    // 人员与角色共用分段，ID 偶尔落在同一段只会多一点等待，不影响正确性
+    private static List<Long> sharedEntityIds(ParsedSubjectDTO parsed) {
+        List<Long> ids = new ArrayList<>();
+        if (parsed.isUpdate() && !parsed.isDelta()) {
+            return ids;
+        }
+        parsed.getPersons().forEach(person -> ids.add(person.getId()));
+        parsed.getCharacters().forEach(character -> ids.add(character.getId()));
+        return ids;
+    }
 
-            // 填充默认值防止空指针
-            if (dto.getPersonJson() == null) dto.setPersonJson("[]");
-            if (dto.getCharacterJson() == null) dto.setCharacterJson("[]");
-            if (dto.getEpisodeJson() == null) dto.setEpisodeJson("{\"data\": []}");
+    /**
+     * 持有数据库许可执行 JDBC 操作，并记录等待许可的时间。
+     */
+    private <T> T callWithDatabasePermit(Callable<T> task) throws Exception {
+        long waitStart = System.nanoTime();
+        return importExecutor.callWithDatabasePermit(() -> {
+            currentMetrics.recordDatabaseWait(System.nanoTime() - waitStart);
+            return task.call();
+        });
+    }
 
-            return dto;
+    private ImportDTO fetchSubjectDataParallel(Long subjectId) {
+        ImportDTO dto = new ImportDTO();
+        dto.setSubjectId(subjectId);
+        HttpHeaders headers = createHeaders();
 
-        } catch (Exception e) {
-            log.error("SubjectID: {} 获取数据异常: {}", subjectId, e.getMessage());
+        // 1. 获取 Subject 主条目，失败则无需继续
+        String subjectUrl = apiHost + "/subjects/" + subjectId;
+        ApiResponseDTO<ApiSubjectDTO> subject = fetchResponseWithRetry(subjectUrl, headers, subjectType, MAX_RETRIES);
+        if (subject == null || subject.getBody() == null) {
+            log.warn("SubjectID: {} 主数据获取失败，终止后续请求", subjectId);
             return null;
         }
+        dto.setSubject(subject.getBody());
+        dto.setValidator(toValidator(subjectUrl, subject)); // 供之后的更新使用条件请求
+
+        // 2. 并发获取 Persons / Characters / Episodes，请求速率仍由全局令牌桶控制
+        boolean fetched = awaitParts(subjectId, List.of(
+                () -> {
+                    dto.setPersons(fetchRequiredPart(apiHost + "/subjects/" + subjectId + "/persons",
+                            headers, personListType));
+                    return null;
+                },
+                () -> {
+                    dto.setCharacters(fetchRequiredPart(apiHost + "/subjects/" + subjectId + "/characters",
+                            headers, characterListType));
+                    return null;
+                },
+                () -> {
+                    dto.setEpisodes(fetchFirstEpisodePage(subjectId, headers));
+                    return null;
+                }));
+        return fetched ? dto : null;
     }
 
-    // 辅助休眠方法
-    private void smartSleep() {
+    /**
+     * 并发执行一个条目的各部分请求，全部成功时返回 true。
+     * 最后一个部分在当前线程执行，少占用一个请求线程。
+     */
+    private boolean awaitParts(Long subjectId, List<Callable<Void>> tasks) {
+        CompletionService<Void> completion = new ExecutorCompletionService<>(importExecutor.requestExecutor());
+        List<Future<Void>> parts = new ArrayList<>();
+        tasks.subList(0, tasks.size() - 1).forEach(task -> parts.add(completion.submit(task)));
+
         try {
-            // 如果有令牌，间隔短一点；无令牌间隔长一点
-            long sleepTime = hasToken ? 500 : 1500;
-            Thread.sleep(sleepTime);
+            tasks.get(tasks.size() - 1).call();
+            // 按完成顺序等待，任意一个失败立即放弃整个条目
+            for (int i = 0; i < parts.size(); i++) {
+                completion.take().get();
+            }
+            return true;
+        } catch (ExecutionException e) {
+            log.warn("SubjectID: {} 获取数据失败，取消其余请求: {}", subjectId, e.getCause().getMessage());
+            return false;
         } catch (InterruptedException e) {
             Thread.currentThread().interrupt();
+            return false;
+        } catch (Exception e) {
+            log.warn("SubjectID: {} 获取数据失败，取消其余请求: {}", subjectId, e.getMessage());
+            return false;
+        } finally {
+            // 各部分只发 HTTP 请求、不访问数据库，可以直接中断仍在进行的请求（已完成的不受影响）
+            parts.forEach(part -> part.cancel(true));
         }
     }
 
-    private List<Long> getUserCollectionSubjectIds(String username) {
-        List<Long> subjectIds = new ArrayList<>();
+    /**
+     * 只请求剧集第一页，其余分页在条目提交后由 {@link #persistRemainingEpisodes} 逐页写入，
+     * 长篇番剧的全部剧集不会同时留在内存中。
+     */
+    private ApiPageDTO<ApiEpisodeDTO> fetchFirstEpisodePage(Long subjectId, HttpHeaders headers) {
+        return fetchRequiredPart(episodePageUrl(subjectId, ImportSettings.episodePageSize(), 0), headers,
+                episodePageType);
+    }
+
+    private CompletableFuture<ApiPageDTO<ApiEpisodeDTO>> fetchFirstEpisodePageAsync(Long subjectId,
+                                                                                HttpHeaders headers) {
+        return fetchBodyAsync(episodePageUrl(subjectId, ImportSettings.episodePageSize(), 0), headers,
+                episodePageType);
+    }
+
+    /**
+     * 条目提交后按偏移量顺序请求其余剧集分页，每到一页就写库。
+     * 同时在途的分页请求不超过同主机并发上限，内存中最多保留这一窗口内的分页；
+     * 全部写完后才记录同步时间，中途失败时下次同步会重新补齐剧集。
+     */
+    private void persistRemainingEpisodes(ParsedSubjectDTO parsed) throws Exception {
+        Long subjectId = parsed.getSubjectId();
+        int pageSize = ImportSettings.episodePageSize();
+        int total = parsed.getEpisodeTotal();
+        int window = ImportSettings.maxRequestsPerHost();
+        log.info("SubjectID: {} 共 {} 集，其余 {} 页逐页写入", subjectId, total,
+                (total - parsed.getEpisodes().size() + pageSize - 1) / pageSize);
+        HttpHeaders headers = createHeaders();
+        Deque<Future<ApiPageDTO<ApiEpisodeDTO>>> pages = new ArrayDeque<>();
+        try {
+            int offset = parsed.getEpisodes().size();
+            while (offset < total || !pages.isEmpty()) {
+                while (offset < total && pages.size() < window) {
+                    String url = episodePageUrl(subjectId, pageSize, offset);
+                    pages.add(importExecutor.requestExecutor().submit(() -> fetchRequiredPart(url, headers,
+                            episodePageType)));
+                    offset += pageSize;
+                }
+                List<Episode> episodes = importParserService.parseEpisodes(pages.poll().get().getData());
+                callWithDatabasePermit(() -> {
+                    importPersistenceService.saveEpisodePage(subjectId, episodes);
+                    return null;
+                });
+            }
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("剧集分页获取失败: " + e.getCause().getMessage(), e.getCause());
+        } finally {
+            // 分页任务只发 HTTP 请求，写库在当前线程进行，中断它们不会影响数据库
+            pages.forEach(page -> page.cancel(true));
+        }
+        callWithDatabasePermit(() -> {
+            importPersistenceService.markSynced(List.of(subjectId));
+            return null;
+        });
+    }
+
+    private String episodePageUrl(Long subjectId, int limit, int offset) {
+        return apiHost + "/episodes?subject_id=" + subjectId + "&limit=" + limit + "&offset=" + offset;
+    }
+
+    private <T> T fetchRequiredPart(String url, HttpHeaders headers, JavaType type) {
+        T value = fetchJsonDataWithRetry(url, headers, type, MAX_RETRIES);
+        if (value == null) {
+            throw new IllegalStateException("请求失败: " + url);
+        }
+        return value;
+    }
+
+    /**
+     * 扫描用户的动画收藏。Bangumi 按 updated_at 从新到旧返回收藏，
+     * 有同步进度时遇到不晚于进度的条目即停止翻页，只返回新增或有变化的条目。
+     */
+    private CollectionSyncDTO getUserCollectionSubjectIds(String username, SyncCheckpoint checkpoint,
+                                                          ImportJournal journal) {
+        CollectionSyncDTO result = new CollectionSyncDTO();
+        List<Long> subjectIds = result.getSubjectIds();
+        OffsetDateTime since = checkpoint != null ? parseTime(checkpoint.getLastUpdatedAt()) : null;
+        if (since != null) {
+            log.info("增量同步：只处理 {} 之后更新的收藏", checkpoint.getLastUpdatedAt());
+        }
         int limit = 100;
-        int offset = 0;
+        int offset = journal.getCollectionOffset() != null ? journal.getCollectionOffset() : 0;
         boolean hasMore = true;
+        boolean complete = true;
 
         while (hasMore) {
+            if (currentCancellation.isCancelled()) {
+                complete = false;
+                break;
+            }
             try {
-                String url = String.format("https://api.bgm.tv/v0/users/%s/collections?limit=%d&offset=%d",
-                        username, limit, offset);
+                String url = String.format(apiHost + "/users/%s/collections?subject_type=%d&limit=%d&offset=%d",
+                        username, ANIME_SUBJECT_TYPE, limit, offset);
 
                 log.debug("请求用户收藏URL: {}", url);
 
-                // 请求间隔控制
-                if (offset > 0) {
-                    Thread.sleep(hasToken ? 1000 : 2000);
-                }
+                // 请求间隔由全局令牌桶控制
+                ApiPageDTO<ApiCollectionDTO> page = fetchJsonDataWithRetry(url, createHeaders(),
+                        collectionPageType, MAX_RETRIES);
+
+                if (page != null) {
+                    List<ApiCollectionDTO> data = page.getData();
 
-                ResponseEntity<String> response = restTemplate.exchange(
-                        url,
-                        HttpMethod.GET,
-                        new HttpEntity<>(createHeaders()),
-                        String.class
-                );
-
-                if (response.getStatusCode() == HttpStatus.OK && response.getBody() != null) {
-                    JsonNode root = objectMapper.readTree(response.getBody());
-                    JsonNode dataNode = root.path("data");
-
-                    if (dataNode.isArray() && !dataNode.isEmpty()) {
-                        for (JsonNode item : dataNode) {
-                            JsonNode subjectNode = item.path("subject");
-                            if (!subjectNode.isMissingNode()) {
-                                Long subjectId = subjectNode.path("id").asLong();
-                                if (subjectId != null && subjectId > 0) {
-                                    subjectIds.add(subjectId);
-                                }
+                    List<Long> pageIds = new ArrayList<>();
+                    if (data != null && !data.isEmpty()) {
+                        for (ApiCollectionDTO item : data) {
+                            if (result.getNewestUpdatedAt() == null) {
+                                result.setNewestUpdatedAt(item.getUpdatedAt()); // 第一条即最新
+                            }
+                            OffsetDateTime updatedAt = parseTime(item.getUpdatedAt());
+                            if (since != null && updatedAt != null && !updatedAt.isAfter(since)) {
+                                // 之后的条目都已同步过
+                                hasMore = false;
+                                break;
+                            }
+                            Long subjectId = item.getSubjectId();
+                            if (subjectId != null && subjectId > 0) {
+                                pageIds.add(subjectId);
                             }
                         }
 
                         // 检查是否还有更多数据
-                        int total = root.path("total").asInt(0);
+                        int total = page.getTotal() != null ? page.getTotal() : 0;
+                        result.setTotal(total);
                         offset += limit;
                         if (offset >= total) {
                             hasMore = false;
@@ -407,491 +1064,353 @@ public class DataImportService {
                     } else {
                         hasMore = false;
                     }
+                    // 每页写入导入日志，中断后从下一页继续
+                    importJournalService.recordPage(journal, pageIds, offset, result.getNewestUpdatedAt(), !hasMore);
+                    subjectIds.addAll(pageIds);
                 } else {
-                    log.error("获取用户收藏失败: HTTP {}", response.getStatusCode());
+                    if (!currentCancellation.isCancelled()) {
+                        log.error("获取用户收藏失败: {}", url);
+                    }
                     hasMore = false;
+                    complete = false;
                 }
-            } catch (InterruptedException e) {
-                Thread.currentThread().interrupt();
-                hasMore = false;
             } catch (Exception e) {
                 log.error("获取用户收藏异常: {}", e.getMessage());
                 hasMore = false;
+                complete = false;
             }
         }
 
+        result.setScannedOffset(Math.min(offset, result.getTotal()));
+        result.setComplete(complete);
         log.info("共获取到 {} 个动漫条目", subjectIds.size());
-        return subjectIds;
+        return result;
     }
 
-    private String fetchJsonData(String url, HttpHeaders headers) {
-        try {
-            log.debug("请求数据: {}", url);
-
-            ResponseEntity<String> response = restTemplate.exchange(
-                    url,
-                    HttpMethod.GET,
-                    new HttpEntity<>(headers),
-                    String.class
-            );
-
-            if (response.getStatusCode().is2xxSuccessful() && response.getBody() != null) {
-                return response.getBody();
-            } else {
-                log.error("请求失败 {}: HTTP {}", url, response.getStatusCode());
-                // 如果是429 Too Many Requests，等待更长时间
-                if (response.getStatusCode() == HttpStatus.TOO_MANY_REQUESTS) {
-                    log.warn("API请求过多，等待10秒后重试");
-                    try {
-                        Thread.sleep(10000);
-                    } catch (InterruptedException e) {
-                        Thread.currentThread().interrupt();
-                    }
-                }
+    /**
+     * 完整扫描用户的动画收藏，只返回条目 ID，不读写同步进度与导入日志。
+     * 任意一页获取失败时返回 null。
+     */
+    public List<Long> fetchCollectionSubjectIds(String username) {
+        List<Long> subjectIds = new ArrayList<>();
+        int limit = 100;
+        int offset = 0;
+        int total;
+        do {
+            String url = String.format(apiHost + "/users/%s/collections?subject_type=%d&limit=%d&offset=%d",
+                    username, ANIME_SUBJECT_TYPE, limit, offset);
+            ApiPageDTO<ApiCollectionDTO> page = fetchJsonDataWithRetry(url, createHeaders(),
+                    collectionPageType, MAX_RETRIES);
+            if (page == null) {
+                log.error("获取用户收藏失败: {}", url);
                 return null;
             }
+            if (page.getData() == null || page.getData().isEmpty()) {
+                break;
+            }
+            for (ApiCollectionDTO item : page.getData()) {
+                if (item.getSubjectId() != null && item.getSubjectId() > 0) {
+                    subjectIds.add(item.getSubjectId());
+                }
+            }
+            total = page.getTotal() != null ? page.getTotal() : 0;
+            offset += limit;
+        } while (offset < total);
+        log.info("用户 [{}] 共收藏 {} 个动画条目", username, subjectIds.size());
+        return subjectIds;
+    }
+
+    // 结果分批写入日志，程序中断时最多重做最近一批条目
+    private void flushOutcomes(String username, Map<Long, String> outcomes) {
+        if (outcomes.isEmpty()) {
+            return;
+        }
+        try {
+            importJournalService.recordOutcomes(username, outcomes);
         } catch (Exception e) {
-            log.error("请求失败 {}: {}", url, e.getMessage());
-            return null;
+            log.warn("写入导入日志失败: {}", e.getMessage());
         }
+        outcomes.clear();
     }
 
-    private String fetchJsonDataWithRetry(String url, HttpHeaders headers, int maxAttempts) {
-        int attempt = 0;
-        while (attempt < maxAttempts) {
-            try {
-                if (Thread.currentThread().isInterrupted()) return null;
-
-                String result = fetchJsonData(url, headers);
-                if (result != null) {
-                    return result;
-                }
-            } catch (Exception e) {
-                attempt++;
-                log.warn("请求失败 (第 {}/{} 次): {}", attempt, maxAttempts, url);
-
-                if (attempt >= maxAttempts) {
-                    log.error("请求 {} 重试{}次后失败", url, maxAttempts);
-                    return null;
-                }
-
-                // 指数退避
-                try {
-                    long sleepTime = 1000L * (1L << (attempt - 1)); // 1, 2, 4秒...
-                    log.debug("等待 {} 毫秒后重试", sleepTime);
-                    Thread.sleep(sleepTime);
-                } catch (InterruptedException ie) {
-                    Thread.currentThread().interrupt();
-                    return null;
-                }
-            }
+    /**
+     * 收藏列表扫描完整时结束本轮导入日志并推进同步进度；
+     * 扫描中途失败则保持日志为进行中，下次从中断的页继续。
+     */
+    private void finishJournal(String username, SyncCheckpoint checkpoint, CollectionSyncDTO collection,
+                               ImportJournal journal) {
+        if (!collection.isComplete()) {
+            log.warn("收藏列表未完整扫描，下次同步将从偏移量 {} 继续", journal.getCollectionOffset());
+            return;
         }
-        return null;
+        importJournalService.close(journal);
+        saveCheckpoint(username, checkpoint, collection);
     }
 
-    @Transactional
-    public void importBatchData(List<ImportDTO> requests) {
-        log.info("开始导入动漫数据，共 {} 个条目", requests.size());
-        int successCount = 0;
-        int errorCount = 0;
-
-        for (ImportDTO request : requests) {
-            try {
-                importSingleAnimeData(request);
-                successCount++;
-                log.info("成功导入动漫: {}", request.getSubjectId());
-            } catch (Exception e) {
-                errorCount++;
-                log.warn("导入失败 (ID: {}): {}", request.getSubjectId(), e.getMessage());
-            }
+    private void saveCheckpoint(String username, SyncCheckpoint checkpoint, CollectionSyncDTO collection) {
+        if (!ImportSettings.incrementalSync()) {
+            return;
         }
-        log.info("导入完成！成功: {}, 失败: {}", successCount, errorCount);
+        if (checkpoint == null) {
+            checkpoint = new SyncCheckpoint();
+            checkpoint.setUsername(username);
+        }
+        if (collection.getNewestUpdatedAt() != null) {
+            checkpoint.setLastUpdatedAt(collection.getNewestUpdatedAt());
+        }
+        int previousOffset = checkpoint.getLastOffset() != null ? checkpoint.getLastOffset() : 0;
+        checkpoint.setLastOffset(Math.max(previousOffset, collection.getScannedOffset()));
+        checkpoint.setTotalCount(collection.getTotal());
+        checkpoint.setSyncedAt(LocalDateTime.now());
+        syncCheckpointRepository.save(checkpoint);
+        log.info("同步进度已保存: 最新收藏时间 {}", checkpoint.getLastUpdatedAt());
     }
 
-    @Transactional
-    public void importSingleAnimeData(ImportDTO tar) throws Exception {
-        long subjectId = tar.getSubjectId();
-        JsonNode subjectNode = objectMapper.readTree(tar.getSubjectJson());
-
-        log.info("开始导入新动漫ID: {}", subjectId);
-        Map<Long, Person> personMap = new HashMap<>();
-        List<Person> newPersons = new ArrayList<>();
-        // 1. 解析制作人员（/persons）
-        JsonNode personArray = objectMapper.readTree(tar.getPersonJson());
-        parsePersons(personArray, personMap, newPersons);
-
-        // 新增：character 缓存和待新增列表
-        Map<Long, Character> characterMap = new HashMap<>();
-        List<Character> newCharacters = new ArrayList<>();
-
-        // 2. 解析角色及其声优（/characters）
-        JsonNode characterArray = objectMapper.readTree(tar.getCharacterJson());
-        parseCharacters(characterArray, personMap, newPersons, characterMap, newCharacters);
-
-        // 3. 使用 MERGE 原子化保存所有新增人员
-        if (!newPersons.isEmpty()) {
-            newPersons.sort(Comparator.comparing(Person::getId));
-            batchMergePersons(newPersons);
-            log.info("合并了 {} 个Person", newPersons.size());
+    private static OffsetDateTime parseTime(String value) {
+        if (value == null || value.isEmpty()) {
+            return null;
         }
-
-        // 4. 保存新增角色
-        if (!newCharacters.isEmpty()) {
-            characterRepository.saveAll(newCharacters);
-            log.info("保存了 {} 个新Character", newCharacters.size());
+        try {
+            return OffsetDateTime.parse(value);
+        } catch (DateTimeParseException e) {
+            log.warn("无法解析时间: {}", value);
+            return null;
         }
-
-        // 5. 解析并保存主条目（传入全部角色列表和全部人员列表）
-        List<Character> allCharacters = new ArrayList<>(characterMap.values());
-        Subject subject = parseSubject(subjectNode, allCharacters, new ArrayList<>(personMap.values()));
-
-        // 6. 保存剧集和Infobox
-        JsonNode episodeData = objectMapper.readTree(tar.getEpisodeJson());
-        saveEpisodes(episodeData.path("data"), subject);
-        saveInfoboxes(subjectNode.path("infobox"), subject);
-        log.info("完成导入新动漫ID: {}", subjectId);
     }
 
-    /**
-     * 使用 H2 的 MERGE 语句批量插入或忽略人员，并同步更新 careers 表。
-     * 此操作是原子的，可彻底避免并发插入时的主键冲突。
-     */
-    private void batchMergePersons(List<Person> persons) {
-        String sql = "MERGE INTO persons (person_id, name, short_summary, person_type, locked, " +
-                "small_image_url, grid_image_url, large_image_url, medium_image_url, common_image_url) " +
-                "KEY(person_id) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
-        jdbcTemplate.batchUpdate(sql, new BatchPreparedStatementSetter() {
-            @Override
-            public void setValues(PreparedStatement ps, int i) throws SQLException {
-                Person p = persons.get(i);
-                Images images = p.getImages();
-                ps.setLong(1, p.getId());
-                ps.setString(2, p.getName());
-                ps.setString(3, p.getShortSummary());
-                ps.setInt(4, p.getType());
-                ps.setBoolean(5, p.getLocked());
-                ps.setString(6, images != null ? images.getSmall() : null);
-                ps.setString(7, images != null ? images.getGrid() : null);
-                ps.setString(8, images != null ? images.getLarge() : null);
-                ps.setString(9, images != null ? images.getMedium() : null);
-                ps.setString(10, images != null ? images.getCommon() : null);
-            }
-            @Override
-            public int getBatchSize() {
-                return persons.size();
-            }
-        });
+    private <T> ApiResponseDTO<T> fetchJsonData(String url, HttpHeaders headers, JavaType type) throws Exception {
+        // 每个请求发出前都要从全局令牌桶取得令牌，导入取消时抛出 CancellationException
+        rateLimiter.acquire(currentCancellation);
+        log.debug("请求数据: {}", url);
 
-        // 处理 careers (person_careers 表)
-        String deleteCareersSql = "DELETE FROM person_careers WHERE person_id = ?";
-        String insertCareersSql = "INSERT INTO person_careers (person_id, career) VALUES (?, ?)";
-        for (Person p : persons) {
-            jdbcTemplate.update(deleteCareersSql, p.getId());
-            List<String> careers = p.getCareers();
-            if (careers != null && !careers.isEmpty()) {
-                List<Object[]> batchArgs = new ArrayList<>();
-                for (String career : careers) {
-                    batchArgs.add(new Object[]{p.getId(), career});
+        try {
+            // 持有目标主机的许可再发出请求，限制同一主机的并发连接数
+            long waitStart = System.nanoTime();
+            ApiResponseDTO<T> value = importExecutor.callWithHostPermit(URI.create(url).getHost(), () -> {
+                currentMetrics.recordHostWait(System.nanoTime() - waitStart);
+                long allocated = ImportMetrics.threadAllocatedBytes();
+                long requestStart = System.nanoTime();
+                ApiResponseDTO<T> decoded;
+                try {
+                    decoded = streamDecoding ? fetchStreaming(url, headers, type) : fetchBuffered(url, headers, type);
+                } finally {
+                    inFlightRequests.remove(Thread.currentThread());
+                    currentMetrics.recordRequest(ImportMetrics.endpointOf(url), System.nanoTime() - requestStart);
+                }
+                if (allocated >= 0) {
+                    currentMetrics.recordDecodeAllocation(ImportMetrics.threadAllocatedBytes() - allocated);
                 }
-                jdbcTemplate.batchUpdate(insertCareersSql, batchArgs);
+                return decoded;
+            });
+
+            if (value == null || (!value.isNotModified() && value.getBody() == null)) {
+                throw new IllegalStateException("响应内容为空: " + url);
             }
+            return value;
+        } catch (HttpClientErrorException.TooManyRequests e) {
+            // 429：按 Retry-After 全局退避，所有线程一起暂停
+            String retryAfter = e.getResponseHeaders() != null
+                    ? e.getResponseHeaders().getFirst(HttpHeaders.RETRY_AFTER) : null;
+            Duration wait = TokenBucketRateLimiter.parseRetryAfter(retryAfter, DEFAULT_RETRY_AFTER);
+            log.warn("API请求过多(429)，全局暂停 {} 秒", wait.toSeconds());
+            currentMetrics.recordRateLimited();
+            rateLimiter.backoff(wait);
+            throw e;
         }
     }
 
     /**
-     * 使用 H2 的 MERGE 语句批量插入或忽略角色，并同步更新 casts 关联表。
-     * 若后续出现角色主键冲突，可调用此方法替换 characterRepository.saveAll()。
+     * stream 模式：直接从响应流绑定到目标类型，不保留完整的响应字符串和 JsonNode 树。
      */
-    private void batchMergeCharacters(List<Character> characters) {
-        String sql = "MERGE INTO characters (character_id, name, summary, relation, type, attitude, " +
-                "small_image_url, grid_image_url, large_image_url, medium_image_url, common_image_url) " +
-                "KEY(character_id) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
-        jdbcTemplate.batchUpdate(sql, new BatchPreparedStatementSetter() {
-            @Override
-            public void setValues(PreparedStatement ps, int i) throws SQLException {
-                Character c = characters.get(i);
-                Images images = c.getImages();
-                ps.setLong(1, c.getId());
-                ps.setString(2, c.getName());
-                ps.setString(3, c.getSummary());
-                ps.setString(4, c.getRelation());
-                ps.setInt(5, c.getType());
-                ps.setInt(6, c.getAttitude());
-                ps.setString(7, images != null ? images.getSmall() : null);
-                ps.setString(8, images != null ? images.getGrid() : null);
-                ps.setString(9, images != null ? images.getLarge() : null);
-                ps.setString(10, images != null ? images.getMedium() : null);
-                ps.setString(11, images != null ? images.getCommon() : null);
-            }
-            @Override
-            public int getBatchSize() {
-                return characters.size();
-            }
-        });
-
-        // 处理 casts (character_cast 表)
-        String deleteCastsSql = "DELETE FROM character_cast WHERE character_id = ?";
-        String insertCastsSql = "INSERT INTO character_cast (character_id, person_id) VALUES (?, ?)";
-        for (Character c : characters) {
-            jdbcTemplate.update(deleteCastsSql, c.getId());
-            List<Person> casts = c.getCasts();
-            if (casts != null && !casts.isEmpty()) {
-                List<Object[]> batchArgs = new ArrayList<>();
-                for (Person person : casts) {
-                    batchArgs.add(new Object[]{c.getId(), person.getId()});
-                }
-                jdbcTemplate.batchUpdate(insertCastsSql, batchArgs);
-            }
-        }
+    private <T> ApiResponseDTO<T> fetchStreaming(String url, HttpHeaders headers, JavaType type) {
+        return restTemplate.execute(url, HttpMethod.GET,
+                request -> request.getHeaders().putAll(headers),
+                response -> {
+                    ApiResponseDTO<T> result = newResponse(response.getStatusCode(), response.getHeaders());
+                    if (result.isNotModified()) {
+                        return result;
+                    }
+                    try (InputStream body = response.getBody()) {
+                        if (responseCache == null) {
+                            result.setBody(objectMapper.readValue(body, type));
+                        } else {
+                            // 启用缓存时需要保留原始字节
+                            byte[] bytes = body.readAllBytes();
+                            result.setBody(objectMapper.readValue(bytes, type));
+                            responseCache.write(url, bytes);
+                        }
+                    }
+                    return result;
+                });
     }
 
-    private void parsePersons(JsonNode personsNode, Map<Long, Person> personMap, List<Person> newPersons) {
-        if (personsNode.isArray()) {
-            for (JsonNode personNode : personsNode) {
-                long id = personNode.path("id").asLong();
-                if (personMap.containsKey(id)) continue; // 已缓存，跳过
+    /**
+     * tree 模式：原有做法，先把响应缓冲为字符串，再构建 JsonNode 树后转换，仅用于对比。
+     */
+    private <T> ApiResponseDTO<T> fetchBuffered(String url, HttpHeaders headers, JavaType type) throws Exception {
+        ResponseEntity<String> response = restTemplate.exchange(
+                url,
+                HttpMethod.GET,
+                new HttpEntity<>(headers),
+                String.class
+        );
 
-                // 查询数据库
-                Optional<Person> existing = personRepository.findById(id);
-                if (existing.isPresent()) {
-                    personMap.put(id, existing.get()); // 使用托管实体
-                } else {
-                    Person person = parseSinglePerson(personNode);
-                    personMap.put(id, person);
-                    newPersons.add(person); // 待新增
-                }
-            }
+        ApiResponseDTO<T> result = newResponse(response.getStatusCode(), response.getHeaders());
+        if (result.isNotModified()) {
+            return result;
         }
-    }
-
-    private Person parseSinglePerson(JsonNode personNode) {
-        Person person = new Person();
-        person.setId(personNode.path("id").asLong());
-        person.setName(personNode.path("name").asText());
-        person.setShortSummary(personNode.path("short_summary").asText());
-        person.setType(personNode.path("type").asInt(0));
-        person.setLocked(personNode.path("locked").asBoolean(false));
-
-        JsonNode imagesNode = personNode.path("images");
-        if (!imagesNode.isMissingNode() && !imagesNode.isEmpty()) {
-            Images images = new Images();
-            images.setSmall(imagesNode.path("small").asText());
-            images.setGrid(imagesNode.path("grid").asText());
-            images.setLarge(imagesNode.path("large").asText());
-            images.setMedium(imagesNode.path("medium").asText());
-            person.setImages(images);
+        if (!response.getStatusCode().is2xxSuccessful() || response.getBody() == null) {
+            throw new IllegalStateException("HTTP " + response.getStatusCode());
         }
-
-        JsonNode careersNode = personNode.path("career");
-        if (careersNode.isArray() && !careersNode.isEmpty()) {
-            List<String> careers = new ArrayList<>();
-            for (JsonNode careerNode : careersNode) {
-                careers.add(careerNode.asText());
-            }
-            person.setCareers(careers);
+        JsonNode root = objectMapper.readTree(response.getBody());
+        result.setBody(objectMapper.treeToValue(root, type));
+        if (responseCache != null) {
+            responseCache.write(url, response.getBody().getBytes(StandardCharsets.UTF_8));
         }
-
-        return person;
+        return result;
     }
 
-    @Transactional(propagation = Propagation.REQUIRES_NEW)
-    public void savePersonsSafe(List<Person> persons) {
-        List<Person> toSave = new ArrayList<>();
-        for (Person p : persons) {
-            // 在锁和独立事务内部再次检查
-            if (!personRepository.existsById(p.getId())) {
-                toSave.add(p);
-            }
+    /**
+     * 回放模式：直接解码缓存中的响应，缓存缺失即视为失败，不重试也不访问网络。
+     * 有条目因此失败时整个导入以 {@link ReplayIncompleteException} 结束。
+     */
+    private <T> ApiResponseDTO<T> replayFromCache(String url, JavaType type) {
+        byte[] cached = responseCache != null ? responseCache.read(url) : null;
+        if (cached == null) {
+            log.warn("回放模式下缓存中没有该响应: {}", url);
+            return null;
         }
-        if (!toSave.isEmpty()) {
-            personRepository.saveAll(toSave);
+        try {
+            ApiResponseDTO<T> result = new ApiResponseDTO<>();
+            result.setBody(objectMapper.readValue(cached, type));
+            return result;
+        } catch (IOException e) {
+            log.error("解码缓存响应失败 {}: {}", url, e.getMessage());
+            return null;
         }
     }
 
-    private void parseCharacters(JsonNode charactersNode, Map<Long, Person> personMap, List<Person> newPersons,
-                                 Map<Long, Character> characterMap, List<Character> newCharacters) throws ParseException {
-        if (charactersNode.isArray()) {
-            for (JsonNode characterNode : charactersNode) {
-                long id = characterNode.path("id").asLong();
-                // 如果已经缓存，跳过
-                if (characterMap.containsKey(id)) continue;
+    private <T> ApiResponseDTO<T> newResponse(HttpStatusCode status, HttpHeaders responseHeaders) {
+        ApiResponseDTO<T> result = new ApiResponseDTO<>();
+        result.setNotModified(status.value() == HttpStatus.NOT_MODIFIED.value());
+        result.setEtag(responseHeaders.getETag());
+        result.setLastModified(responseHeaders.getFirst(HttpHeaders.LAST_MODIFIED));
+        return result;
+    }
 
-                Character character;
-                // 查询数据库是否已存在
-                Optional<Character> existing = characterRepository.findById(id);
-                if (existing.isPresent()) {
-                    character = existing.get(); // 使用托管实体
-                    // 注意：如果需要对已存在的角色更新某些字段（如 relation, type, summary），可以在这里更新
-                    // 但目前 API 返回的角色信息可能不会变化，所以可以忽略更新，保持已有数据
-                } else {
-                    character = new Character();
-                    character.setId(id);
-                    character.setName(characterNode.path("name").asText());
-                    character.setSummary(characterNode.path("summary").asText());
-                    character.setRelation(characterNode.path("relation").asText());
-                    character.setType(characterNode.path("type").asInt(0));
-                    character.setAttitude(0); // 默认态度
-
-                    // 设置图片
-                    JsonNode imagesNode = characterNode.path("images");
-                    if (!imagesNode.isMissingNode() && !imagesNode.isEmpty()) {
-                        Images images = new Images();
-                        images.setSmall(imagesNode.path("small").asText());
-                        images.setGrid(imagesNode.path("grid").asText());
-                        images.setLarge(imagesNode.path("large").asText());
-                        images.setMedium(imagesNode.path("medium").asText());
-                        character.setImages(images);
-                    }
-                    newCharacters.add(character);
-                }
+    private <T> T fetchJsonDataWithRetry(String url, HttpHeaders headers, JavaType type, int maxAttempts) {
+        ApiResponseDTO<T> response = fetchResponseWithRetry(url, headers, type, maxAttempts);
+        return response != null ? response.getBody() : null;
+    }
 
-                // 处理声优（actors）- 需要设置到 character 中，无论是新角色还是已存在角色，都要更新声优列表
-                JsonNode actorsNode = characterNode.path("actors");
-                if (actorsNode.isArray()) {
-                    List<Person> casts = new ArrayList<>();
-                    for (JsonNode actorNode : actorsNode) {
-                        long actorId = actorNode.path("id").asLong();
-                        Person person = personMap.get(actorId);
-                        if (person == null) {
-                            // 缓存未命中，查询数据库
-                            Optional<Person> existingPerson = personRepository.findById(actorId);
-                            if (existingPerson.isPresent()) {
-                                person = existingPerson.get();
-                                personMap.put(actorId, person);
-                            } else {
-                                person = parseSinglePerson(actorNode);
-                                personMap.put(actorId, person);
-                                newPersons.add(person);
-                            }
-                        }
-                        casts.add(person);
-                    }
-                    character.setCasts(casts);
-                }
+    private <T> ApiResponseDTO<T> fetchResponseWithRetry(String url, HttpHeaders headers, JavaType type, int maxAttempts) {
+        if (replay) {
+            return replayFromCache(url, type);
+        }
+        for (int attempt = 1; attempt <= maxAttempts; attempt++) {
+            if (Thread.currentThread().isInterrupted() || currentCancellation.isCancelled()) return null;
+            if (attempt > 1) {
+                currentMetrics.recordRetry();
+            }
 
-                characterMap.put(id, character);
-            }
-        }
-    }
-
-    @Transactional(propagation = Propagation.REQUIRES_NEW)
-    public void saveCharactersSafe(List<Character> characters) {
-        List<Character> toSave = new ArrayList<>();
-        for (Character c : characters) {
-            if (!characterRepository.existsById(c.getId())) {
-                toSave.add(c);
-            }
-        }
-        if (!toSave.isEmpty()) {
-            characterRepository.saveAll(toSave);
-        }
-    }
-
-    private Subject parseSubject(JsonNode subjectNode, List<Character> characters, List<Person> persons) throws ParseException {
-        Subject subject = new Subject();
-        subject.setId(subjectNode.path("id").asLong());
-        subject.setName(subjectNode.path("name").asText());
-        subject.setNameCn(subjectNode.path("name_cn").asText());
-        subject.setDate(subjectNode.path("date").asText());
-
-        subject.setPlatform(subjectNode.path("platform").asText());
-        subject.setSummary(subjectNode.path("summary").asText());
-        subject.setEps(subjectNode.path("eps").asInt(0));
-        subject.setVolumes(subjectNode.path("volumes").asInt(0));
-        subject.setSeries(subjectNode.path("series").asBoolean(false));
-        subject.setLocked(subjectNode.path("locked").asBoolean(false));
-        subject.setNsfw(subjectNode.path("nsfw").asBoolean(false));
-        subject.setType(subjectNode.path("type").asInt(0));
-
-        JsonNode imagesNode = subjectNode.path("images");
-        if (!imagesNode.isMissingNode() && !imagesNode.isEmpty()) {
-            Images images = new Images();
-            images.setSmall(imagesNode.path("small").asText());
-            images.setGrid(imagesNode.path("grid").asText());
-            images.setLarge(imagesNode.path("large").asText());
-            images.setMedium(imagesNode.path("medium").asText());
-            images.setCommon(imagesNode.path("common").asText());
-            subject.setImages(images);
-        }
-
-        JsonNode ratingNode = subjectNode.path("rating");
-        if (!ratingNode.isMissingNode() && !ratingNode.isEmpty()) {
-            Rating rating = new Rating();
-            rating.setRank(ratingNode.path("rank").asInt());
-            rating.setTotal(ratingNode.path("total").asInt(0));
-            rating.setScore(ratingNode.path("score").asDouble(0.0));
-            rating.setInformation(0.0);
-            rating.setStory(0.0);
-            rating.setCharacter(0.0);
-            rating.setQuality(0.0);
-            rating.setAtmosphere(0.0);
-            rating.setLove(0.0);
-            rating.setTotalscore(0.0);
-            subject.setRating(rating);
-        }
-
-        subject.setCharacters(characters);
-        subject.setPersons(persons);
-
-        return subjectRepository.save(subject);
-    }
-
-    private void saveEpisodes(JsonNode episodesNode, Subject subject) throws ParseException {
-        if (episodesNode.isArray()) {
-            List<Episode> episodes = new ArrayList<>();
-            for (JsonNode episodeNode : episodesNode) {
-                Episode episode = new Episode();
-                episode.setId(episodeNode.path("id").asLong());
-                episode.setEp(episodeNode.path("ep").asInt());
-                episode.setName(episodeNode.path("name").asText());
-                episode.setNameCn(episodeNode.path("name_cn").asText());
-                episode.setDuration(episodeNode.path("duration").asText());
-                episode.setDescription(episodeNode.path("desc").asText());
-                episode.setAttitude(0);
-                episode.setSubject(subject);
-                episode.setAirdate(episodeNode.path("airdate").asText());
-                if (!episodeRepository.existsById(episode.getId())) {
-                    episodes.add(episode);
+            try {
+                return fetchJsonData(url, headers, type);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return null;
+            } catch (CancellationException e) {
+                return null;
+            } catch (HttpClientErrorException.TooManyRequests e) {
+                // 退避已由令牌桶统一处理，这里直接进入下一次尝试
+                log.warn("请求被限流 (第 {}/{} 次): {}", attempt, maxAttempts, url);
+                continue;
+            } catch (HttpClientErrorException e) {
+                // 其他4xx（如404）重试也无意义
+                log.error("请求失败 {}: HTTP {}", url, e.getStatusCode());
+                return null;
+            } catch (Exception e) {
+                if (currentCancellation.isCancelled()) {
+                    return null; // 连接已被取消操作关闭
                 }
+                log.warn("请求失败 (第 {}/{} 次) {}: {}", attempt, maxAttempts, url, e.getMessage());
             }
 
-            // 批量保存
-            if (!episodes.isEmpty()) {
-                episodeRepository.saveAll(episodes);
+            if (attempt < maxAttempts) {
+                // 指数退避
+                try {
+                    long sleepTime = 1000L * (1L << (attempt - 1)); // 1, 2, 4秒...
+                    log.debug("等待 {} 毫秒后重试", sleepTime);
+                    currentCancellation.sleep(TimeUnit.MILLISECONDS.toNanos(sleepTime));
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    return null;
+                } catch (CancellationException ce) {
+                    return null;
+                }
             }
         }
+        log.error("请求 {} 重试{}次后失败", url, maxAttempts);
+        return null;
     }
 
-    private void saveInfoboxes(JsonNode infoboxNode, Subject subject) {
-        if (infoboxNode.isArray()) {
-            List<Infobox> infoboxes = new ArrayList<>();
-            for (JsonNode infoboxItem : infoboxNode) {
-                Infobox infobox = new Infobox();
-                infobox.setKey(infoboxItem.path("key").asText());
-                JsonNode valueNode = infoboxItem.path("value");
-                infobox.setValue(valueNode.asText());
-                infobox.setSubject(subject);
-                infoboxes.add(infobox);
-            }
+    @Transactional
+    public void importBatchData(List<ImportDTO> requests) {
+        log.info("开始导入动漫数据，共 {} 个条目", requests.size());
+        int successCount = 0;
+        int errorCount = 0;
 
-            // 批量保存
-            if (!infoboxes.isEmpty()) {
-                infoboxRepository.saveAll(infoboxes);
+        for (ImportDTO request : requests) {
+            try {
+                importSingleAnimeData(request);
+                successCount++;
+                log.info("成功导入动漫: {}", request.getSubjectId());
+            } catch (Exception e) {
+                errorCount++;
+                log.warn("导入失败 (ID: {}): {}", request.getSubjectId(), e.getMessage());
             }
         }
+        log.info("导入完成！成功: {}, 失败: {}", successCount, errorCount);
+    }
+
+    @Transactional
+    public void importSingleAnimeData(ImportDTO tar) throws Exception {
+        importPersistenceService.persistNewSubject(importParserService.parse(tar));
     }
 
     public void shutdown() {
         log.info("关闭数据导入服务...");
-        executor.shutdown();
+        // 协调线程会写库，不能中断；通过取消信号让进行中的导入把已抓取的条目写完后结束
+        currentCancellation.cancel();
+        coordinator.shutdown();
         try {
-            if (!executor.awaitTermination(60, TimeUnit.SECONDS)) {
-                executor.shutdownNow();
+            if (!coordinator.awaitTermination(60, TimeUnit.SECONDS)) {
+                log.warn("导入任务未在 60 秒内结束，继续关闭");
             }
         } catch (InterruptedException e) {
-            executor.shutdownNow();
             Thread.currentThread().interrupt();
         }
+        importExecutor.shutdown();
+        if (httpClient != null) {
+            httpClient.close(CloseMode.GRACEFUL);
+        }
+        if (asyncApiClient != null) {
+            asyncApiClient.shutdown();
+        }
         log.info("数据导入服务已关闭");
     }
-}
\ No newline at end of file
+
+    /**
+     * 回放模式下有条目缺少缓存响应，数据库没有被完整重建。
+     */
+    static class ReplayIncompleteException extends IllegalStateException {
+
+        private static final int LISTED_SUBJECTS = 50;
+
+        ReplayIncompleteException(Collection<Long> subjectIds) {
+            super(String.format("回放未能完整重建: %d 个条目缺少缓存响应，SubjectID: %s%s",
+                    subjectIds.size(),
+                    subjectIds.stream().sorted().limit(LISTED_SUBJECTS).toList(),
+                    subjectIds.size() > LISTED_SUBJECTS ? " 等" : ""));
+        }
+    }
+}
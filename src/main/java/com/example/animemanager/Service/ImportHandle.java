@@ -0,0 +1,41 @@
+package com.example.animemanager.Service;
+
+import com.example.animemanager.Util.CancellationToken;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * 后台导入任务的句柄：可以等待导入结束，也可以中途取消。
+ * 取消后正在进行的请求与等待立即中止，已抓取的条目照常解析写库，
+ * 未处理的条目留在导入日志中，下次同步从中断处继续。
+ */
+@Slf4j
+public class ImportHandle {
+
+    private final CompletableFuture<Void> completion;
+    private final CancellationToken cancellation;
+
+    ImportHandle(CompletableFuture<Void> completion, CancellationToken cancellation) {
+        this.completion = completion;
+        this.cancellation = cancellation;
+    }
+
+    /**
+     * 导入结束（包括取消后收尾完成）时完成。
+     */
+    public CompletableFuture<Void> getCompletion() {
+        return completion;
+    }
+
+    public void cancel() {
+        if (!completion.isDone() && !cancellation.isCancelled()) {
+            log.info("收到取消请求，正在中止导入...");
+        }
+        cancellation.cancel();
+    }
+
+    public boolean isCancelled() {
+        return cancellation.isCancelled();
+    }
+}
@@ -0,0 +1,146 @@
+package com.example.animemanager.Service;
+
+import com.example.animemanager.Entity.ImportJournal;
+import com.example.animemanager.Entity.ImportJournalEntry;
+import com.example.animemanager.Repository.ImportJournalEntryRepository;
+import com.example.animemanager.Repository.ImportJournalRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 导入进度日志：记录计划导入的条目、完成与失败情况以及收藏列表扫描到的位置，
+ * 程序中途关闭后下次同步从中断处继续，只重试未完成和失败的条目。
+ */
+@Slf4j
+@Service
+public class ImportJournalService {
+    // 失败条目最多重试的次数，超过后保留记录但不再自动重试
+    public static final int MAX_ATTEMPTS = 3;
+
+    private final ImportJournalRepository journalRepository;
+    private final ImportJournalEntryRepository entryRepository;
+    private final JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    public ImportJournalService(ImportJournalRepository journalRepository,
+                                ImportJournalEntryRepository entryRepository,
+                                JdbcTemplate jdbcTemplate) {
+        this.journalRepository = journalRepository;
+        this.entryRepository = entryRepository;
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * 取得用户的导入日志。上次导入未正常结束时原样返回以便续传，否则开始新的一轮。
+     */
+    @Transactional
+    public ImportJournal open(String username) {
+        ImportJournal journal = journalRepository.findById(username).orElse(null);
+        if (journal != null && ImportJournal.RUNNING.equals(journal.getStatus())) {
+            log.info("发现未完成的导入（开始于 {}），从收藏偏移量 {} 继续，待处理 {} 个条目",
+                    journal.getStartedAt(), journal.getCollectionOffset(),
+                    entryRepository.countByUsernameAndStatus(username, ImportJournalEntry.PLANNED));
+            return journal;
+        }
+        if (journal == null) {
+            journal = new ImportJournal();
+            journal.setUsername(username);
+        }
+        journal.setStatus(ImportJournal.RUNNING);
+        journal.setCollectionOffset(0);
+        journal.setCollectionComplete(false);
+        journal.setNewestUpdatedAt(null);
+        journal.setStartedAt(LocalDateTime.now());
+        journal.setUpdatedAt(LocalDateTime.now());
+        return journalRepository.save(journal);
+    }
+
+    /**
+     * 记录一页收藏扫描结果：条目加入待处理列表，同时保存下一页的偏移量。
+     * 之前失败过的条目再次出现（收藏有更新）时重置重试次数。
+     */
+    @Transactional
+    public void recordPage(ImportJournal journal, List<Long> subjectIds, int nextOffset,
+                           String newestUpdatedAt, boolean complete) {
+        plan(journal.getUsername(), subjectIds);
+
+        journal.setCollectionOffset(nextOffset);
+        journal.setCollectionComplete(complete);
+        if (journal.getNewestUpdatedAt() == null) {
+            journal.setNewestUpdatedAt(newestUpdatedAt);
+        }
+        journal.setUpdatedAt(LocalDateTime.now());
+        journalRepository.save(journal);
+    }
+
+    /**
+     * 把条目加入待处理列表，已在列表中的条目保持原状态，失败过的条目重置重试次数。
+     */
+    @Transactional
+    public void plan(String username, Collection<Long> subjectIds) {
+        String sql = "MERGE INTO import_journal_entries t " +
+                "USING (VALUES (CAST(? AS VARCHAR), CAST(? AS BIGINT))) AS s(username, subject_id) " +
+                "ON t.username = s.username AND t.subject_id = s.subject_id " +
+                "WHEN MATCHED AND t.status = 'FAILED' THEN UPDATE SET status = 'PLANNED', attempts = 0, " +
+                "updated_at = CURRENT_TIMESTAMP " +
+                "WHEN NOT MATCHED THEN INSERT (username, subject_id, status, attempts, updated_at) " +
+                "VALUES (s.username, s.subject_id, 'PLANNED', 0, CURRENT_TIMESTAMP)";
+        List<Object[]> args = new ArrayList<>();
+        for (Long subjectId : subjectIds) {
+            args.add(new Object[]{username, subjectId});
+        }
+        if (!args.isEmpty()) {
+            jdbcTemplate.batchUpdate(sql, args);
+        }
+    }
+
+    @Transactional(readOnly = true)
+    public List<Long> pendingSubjectIds(String username) {
+        return entryRepository.findPendingSubjectIds(username, MAX_ATTEMPTS);
+    }
+
+    /**
+     * 批量记录条目结果，value 为 null 表示成功，否则为失败原因。
+     */
+    @Transactional
+    public void recordOutcomes(String username, Map<Long, String> outcomes) {
+        String sql = "UPDATE import_journal_entries SET status = ?, reason = ?, attempts = attempts + ?, " +
+                "updated_at = CURRENT_TIMESTAMP WHERE username = ? AND subject_id = ?";
+        List<Object[]> args = new ArrayList<>();
+        outcomes.forEach((subjectId, reason) -> args.add(new Object[]{
+                reason == null ? ImportJournalEntry.DONE : ImportJournalEntry.FAILED,
+                reason == null ? null : abbreviate(reason),
+                reason == null ? 0 : 1,
+                username,
+                subjectId}));
+        if (!args.isEmpty()) {
+            jdbcTemplate.batchUpdate(sql, args);
+        }
+    }
+
+    /**
+     * 导入正常结束：清除已完成的条目，失败条目保留到下次同步重试。
+     */
+    @Transactional
+    public void close(ImportJournal journal) {
+        int removed = entryRepository.deleteDone(journal.getUsername());
+        long failed = entryRepository.countByUsernameAndStatus(journal.getUsername(), ImportJournalEntry.FAILED);
+        journal.setStatus(ImportJournal.FINISHED);
+        journal.setUpdatedAt(LocalDateTime.now());
+        journalRepository.save(journal);
+        log.info("导入日志已关闭: 完成 {} 个，失败待重试 {} 个", removed, failed);
+    }
+
+    private static String abbreviate(String reason) {
+        return reason.length() > 1000 ? reason.substring(0, 1000) : reason;
+    }
+}
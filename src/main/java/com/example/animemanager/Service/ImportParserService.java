@@ -0,0 +1,229 @@
+package com.example.animemanager.Service;
+
+import com.example.animemanager.DTO.*;
+import com.example.animemanager.Entity.*;
+import com.example.animemanager.Entity.Character;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+
+/**
+ * 导入流水线的解析阶段：把已解码的 API 对象转换为实体对象。
+ * 这里只做纯内存计算，不访问数据库，已存在实体的比对交给持久化阶段。
+ */
+@Service
+public class ImportParserService {
+
+    public ParsedSubjectDTO parse(ImportDTO tar) {
+        ParsedSubjectDTO parsed = new ParsedSubjectDTO();
+        parsed.setSubjectId(tar.getSubjectId());
+        parsed.setUpdate(tar.isUpdate());
+        parsed.setOffline(tar.isOffline());
+        parsed.setValidator(tar.getValidator());
+
+        ApiSubjectDTO subjectDto = tar.getSubject();
+        if (tar.isUpdate()) {
+            // 304 后仍需增量同步时没有主条目数据，评分保持不变
+            parsed.setRating(subjectDto != null ? parseRating(subjectDto.getRating()) : null);
+            parsed.setImages(subjectDto != null ? parseImages(subjectDto.getImages()) : null);
+            if (tar.isDelta()) {
+                parsed.setDelta(true);
+                parsed.setRefill(tar.isRefill());
+                // 补齐时制作人员与声优一起比对，只有声优参与角色的写入
+                Map<Long, Person> castMap = new LinkedHashMap<>();
+                for (ApiPersonDTO personDto : nullToEmpty(tar.getPersons())) {
+                    castMap.computeIfAbsent(personDto.getId(), key -> parseSinglePerson(personDto));
+                }
+                parsed.setCharacters(parseCharacters(nullToEmpty(tar.getCharacters()), castMap));
+                parsed.setPersons(new ArrayList<>(castMap.values()));
+                parseFirstEpisodePage(tar.getEpisodes(), parsed);
+            }
+            return parsed;
+        }
+
+        // 1. 解析制作人员（/persons）
+        Map<Long, Person> personMap = new LinkedHashMap<>();
+        for (ApiPersonDTO personDto : nullToEmpty(tar.getPersons())) {
+            personMap.computeIfAbsent(personDto.getId(), key -> parseSinglePerson(personDto));
+        }
+
+        // 2. 解析角色及其声优（/characters），声优同样加入人员表
+        List<Character> characters = parseCharacters(nullToEmpty(tar.getCharacters()), personMap);
+
+        // 3. 主条目、剧集与 Infobox
+        parsed.setSubject(parseSubject(subjectDto));
+        parsed.setPersons(new ArrayList<>(personMap.values()));
+        parsed.setCharacters(characters);
+        parseFirstEpisodePage(tar.getEpisodes(), parsed);
+        parsed.setInfoboxes(parseInfoboxes(subjectDto.getInfobox()));
+        return parsed;
+    }
+
+    private Person parseSinglePerson(ApiPersonDTO personDto) {
+        Person person = new Person();
+        person.setId(personDto.getId());
+        person.setName(text(personDto.getName()));
+        person.setShortSummary(text(personDto.getShortSummary()));
+        person.setType(number(personDto.getType()));
+        person.setLocked(Boolean.TRUE.equals(personDto.getLocked()));
+
+        ApiImagesDTO imagesDto = personDto.getImages();
+        if (imagesDto != null) {
+            Images images = new Images();
+            images.setSmall(text(imagesDto.getSmall()));
+            images.setGrid(text(imagesDto.getGrid()));
+            images.setLarge(text(imagesDto.getLarge()));
+            images.setMedium(text(imagesDto.getMedium()));
+            person.setImages(images);
+        }
+
+        if (personDto.getCareer() != null && !personDto.getCareer().isEmpty()) {
+            person.setCareers(new ArrayList<>(personDto.getCareer()));
+        }
+
+        return person;
+    }
+
+    private List<Character> parseCharacters(List<ApiCharacterDTO> characterDtos, Map<Long, Person> personMap) {
+        Map<Long, Character> characterMap = new LinkedHashMap<>();
+        for (ApiCharacterDTO characterDto : characterDtos) {
+            long id = characterDto.getId();
+            // 如果已经解析过，跳过
+            if (characterMap.containsKey(id)) continue;
+
+            Character character = new Character();
+            character.setId(id);
+            character.setName(text(characterDto.getName()));
+            character.setSummary(text(characterDto.getSummary()));
+            character.setRelation(text(characterDto.getRelation()));
+            character.setType(number(characterDto.getType()));
+            character.setAttitude(0); // 默认态度
+
+            // 设置图片
+            ApiImagesDTO imagesDto = characterDto.getImages();
+            if (imagesDto != null) {
+                Images images = new Images();
+                images.setSmall(text(imagesDto.getSmall()));
+                images.setGrid(text(imagesDto.getGrid()));
+                images.setLarge(text(imagesDto.getLarge()));
+                images.setMedium(text(imagesDto.getMedium()));
+                character.setImages(images);
+            }
+
+            // 处理声优（actors），与制作人员共用同一个 personMap 去重
+            if (characterDto.getActors() != null) {
+                List<Person> casts = new ArrayList<>();
+                for (ApiPersonDTO actorDto : characterDto.getActors()) {
+                    casts.add(personMap.computeIfAbsent(actorDto.getId(), key -> parseSinglePerson(actorDto)));
+                }
+                character.setCasts(casts);
+            }
+
+            characterMap.put(id, character);
+        }
+        return new ArrayList<>(characterMap.values());
+    }
+
+    private Subject parseSubject(ApiSubjectDTO subjectDto) {
+        Subject subject = new Subject();
+        subject.setId(subjectDto.getId());
+        subject.setName(text(subjectDto.getName()));
+        subject.setNameCn(text(subjectDto.getNameCn()));
+        subject.setDate(text(subjectDto.getDate()));
+
+        subject.setPlatform(text(subjectDto.getPlatform()));
+        subject.setSummary(text(subjectDto.getSummary()));
+        subject.setEps(number(subjectDto.getEps()));
+        subject.setVolumes(number(subjectDto.getVolumes()));
+        subject.setSeries(Boolean.TRUE.equals(subjectDto.getSeries()));
+        subject.setLocked(Boolean.TRUE.equals(subjectDto.getLocked()));
+        subject.setNsfw(Boolean.TRUE.equals(subjectDto.getNsfw()));
+        subject.setType(number(subjectDto.getType()));
+
+        subject.setImages(parseImages(subjectDto.getImages()));
+
+        Rating rating = parseRating(subjectDto.getRating());
+        if (rating != null) {
+            rating.setInformation(0.0);
+            rating.setStory(0.0);
+            rating.setCharacter(0.0);
+            rating.setQuality(0.0);
+            rating.setAtmosphere(0.0);
+            rating.setLove(0.0);
+            rating.setTotalscore(0.0);
+            subject.setRating(rating);
+        }
+        return subject;
+    }
+
+    private Images parseImages(ApiImagesDTO imagesDto) {
+        if (imagesDto == null) {
+            return null;
+        }
+        Images images = new Images();
+        images.setSmall(text(imagesDto.getSmall()));
+        images.setGrid(text(imagesDto.getGrid()));
+        images.setLarge(text(imagesDto.getLarge()));
+        images.setMedium(text(imagesDto.getMedium()));
+        images.setCommon(text(imagesDto.getCommon()));
+        return images;
+    }
+
+    // 只包含 Bangumi 提供的评分字段，自定义评分由调用方处理
+    private Rating parseRating(ApiRatingDTO ratingDto) {
+        if (ratingDto == null) {
+            return null;
+        }
+        Rating rating = new Rating();
+        rating.setRank(number(ratingDto.getRank()));
+        rating.setTotal(number(ratingDto.getTotal()));
+        rating.setScore(ratingDto.getScore() != null ? ratingDto.getScore() : 0.0);
+        return rating;
+    }
+
+    private void parseFirstEpisodePage(ApiPageDTO<ApiEpisodeDTO> page, ParsedSubjectDTO parsed) {
+        parsed.setEpisodes(parseEpisodes(page != null ? page.getData() : null));
+        parsed.setEpisodeTotal(page != null && page.getTotal() != null ? page.getTotal() : parsed.getEpisodes().size());
+    }
+
+    List<Episode> parseEpisodes(List<ApiEpisodeDTO> episodeDtos) {
+        List<Episode> episodes = new ArrayList<>();
+        for (ApiEpisodeDTO episodeDto : nullToEmpty(episodeDtos)) {
+            Episode episode = new Episode();
+            episode.setId(episodeDto.getId());
+            episode.setEp(number(episodeDto.getEp()));
+            episode.setName(text(episodeDto.getName()));
+            episode.setNameCn(text(episodeDto.getNameCn()));
+            episode.setDuration(text(episodeDto.getDuration()));
+            episode.setDescription(text(episodeDto.getDesc()));
+            episode.setAttitude(0);
+            episode.setAirdate(text(episodeDto.getAirdate()));
+            episodes.add(episode);
+        }
+        return episodes;
+    }
+
+    private List<Infobox> parseInfoboxes(List<ApiInfoboxDTO> infoboxDtos) {
+        List<Infobox> infoboxes = new ArrayList<>();
+        for (ApiInfoboxDTO infoboxDto : nullToEmpty(infoboxDtos)) {
+            Infobox infobox = new Infobox();
+            infobox.setKey(text(infoboxDto.getKey()));
+            infobox.setValue(infoboxDto.getValue() != null ? infoboxDto.getValue().asText() : "");
+            infoboxes.add(infobox);
+        }
+        return infoboxes;
+    }
+
+    // 与原先 JsonNode.asText() / asInt(0) 的缺省行为保持一致
+    private static String text(String value) {
+        return value != null ? value : "";
+    }
+
+    private static int number(Integer value) {
+        return value != null ? value : 0;
+    }
+
+    private static <T> List<T> nullToEmpty(List<T> list) {
+        return list != null ? list : Collections.emptyList();
+    }
+}
@@ -0,0 +1,627 @@
+package com.example.animemanager.Service;
+
+import com.example.animemanager.DTO.ParsedSubjectDTO;
+import com.example.animemanager.Entity.*;
+import com.example.animemanager.Entity.Character;
+import com.example.animemanager.Repository.*;
+import com.example.animemanager.Util.ImportMetrics;
+import com.example.animemanager.Util.ImportSettings;
+import com.example.animemanager.Util.ResolvedIdCache;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * 导入流水线的持久化阶段：把解析好的实体与数据库比对后写入。
+ */
+@Slf4j
+@Service
+public class ImportPersistenceService {
+    private final SubjectRepository subjectRepository;
+    private final CharacterRepository characterRepository;
+    private final PersonRepository personRepository;
+    private final EpisodeRepository episodeRepository;
+    private final InfoboxRepository infoboxRepository;
+    private final HttpValidatorRepository httpValidatorRepository;
+    private final JdbcTemplate jdbcTemplate;  // 用于执行 MERGE 操作
+    // 仅在导入进行中存在，其他调用路径直接查询数据库
+    private volatile ResolvedIdCache personIdCache;
+    private volatile ResolvedIdCache characterIdCache;
+
+    @Autowired
+    public ImportPersistenceService(
+            SubjectRepository subjectRepository,
+            CharacterRepository characterRepository,
+            PersonRepository personRepository,
+            EpisodeRepository episodeRepository,
+            InfoboxRepository infoboxRepository,
+            HttpValidatorRepository httpValidatorRepository,
+            JdbcTemplate jdbcTemplate) {
+        this.subjectRepository = subjectRepository;
+        this.characterRepository = characterRepository;
+        this.personRepository = personRepository;
+        this.episodeRepository = episodeRepository;
+        this.infoboxRepository = infoboxRepository;
+        this.httpValidatorRepository = httpValidatorRepository;
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * 导入开始时创建本次导入共享的人员 / 角色 ID 缓存，命中率随导入统计一起输出。
+     */
+    public void openIdCaches(ImportMetrics metrics) {
+        if (!ImportSettings.idCache()) {
+            return;
+        }
+        ResolvedIdCache persons = new ResolvedIdCache();
+        ResolvedIdCache characters = new ResolvedIdCache();
+        metrics.bindIdCache("person", persons);
+        metrics.bindIdCache("character", characters);
+        this.personIdCache = persons;
+        this.characterIdCache = characters;
+    }
+
+    public void closeIdCaches() {
+        this.personIdCache = null;
+        this.characterIdCache = null;
+    }
+
+    @FunctionalInterface
+    public interface GroupWriter {
+        // 在一个事务中写入一组条目，返回未在本事务中写入、需要单独写入的条目
+        List<ParsedSubjectDTO> write(List<ParsedSubjectDTO> group) throws Exception;
+    }
+
+    @FunctionalInterface
+    public interface SubjectWriter {
+        // 在单独的事务中写入一个条目
+        void write(ParsedSubjectDTO parsed) throws Exception;
+    }
+
+    /**
+     * 分组写库：一组条目先在同一个事务中写入，分摊提交与刷盘的开销；
+     * 整组失败时回滚，再逐条单独写入，只有真正出错的条目记为失败。在线同步与离线数据包导入共用。
+     *
+     * @return 写入失败的条目，其余条目均已提交
+     */
+    public List<ParsedSubjectDTO> persistWithFallback(List<ParsedSubjectDTO> group, ImportMetrics metrics,
+                                                      GroupWriter groupWriter, SubjectWriter subjectWriter)
+            throws InterruptedException {
+        if (group.size() > 1) {
+            try {
+                List<ParsedSubjectDTO> deferred = groupWriter.write(group);
+                metrics.recordCommit();
+                log.info("{} 个条目已在同一事务中写入{}", group.size() - deferred.size(),
+                        deferred.isEmpty() ? "" : "，" + deferred.size() + " 个条目单独写入");
+                return persistEach(deferred, metrics, subjectWriter);
+            } catch (InterruptedException e) {
+                throw e;
+            } catch (Exception e) {
+                log.warn("{} 个条目批量写入失败，逐条重试: {}", group.size(), e.getMessage());
+                metrics.recordGroupRetry();
+            }
+        }
+        return persistEach(group, metrics, subjectWriter);
+    }
+
+    private List<ParsedSubjectDTO> persistEach(List<ParsedSubjectDTO> subjects, ImportMetrics metrics,
+                                               SubjectWriter subjectWriter) throws InterruptedException {
+        List<ParsedSubjectDTO> failed = new ArrayList<>();
+        for (ParsedSubjectDTO parsed : subjects) {
+            try {
+                subjectWriter.write(parsed);
+                metrics.recordCommit();
+            } catch (InterruptedException e) {
+                throw e;
+            } catch (Exception e) {
+                log.error("SubjectID: {} 持久化失败: {}", parsed.getSubjectId(), e.getMessage(), e);
+                failed.add(parsed);
+            }
+        }
+        return failed;
+    }
+
+    /**
+     * 在同一个事务中写入一组条目，任何一个失败都会整体回滚，由调用方逐条重试。
+     *
+     * @param admit 写入每个条目之前调用，返回 false 的条目不在本事务中写入，由调用方另行处理
+     */
+    @Transactional
+    public void persistGroup(List<ParsedSubjectDTO> group, Predicate<ParsedSubjectDTO> admit) {
+        for (ParsedSubjectDTO parsed : group) {
+            if (!admit.test(parsed)) {
+                continue;
+            }
+            if (parsed.isDelta()) {
+                syncSubjectDelta(parsed);
+            } else if (parsed.isUpdate()) {
+                updateSubject(parsed);
+            } else {
+                persistNewSubject(parsed);
+            }
+        }
+    }
+
+    @Transactional
+    public void persistNewSubject(ParsedSubjectDTO parsed) {
+        long subjectId = parsed.getSubjectId();
+        log.info("开始导入新动漫ID: {}", subjectId);
+
+        // 1. 比对制作人员与声优，已存在的替换为托管实体
+        Map<Long, Person> personMap = new LinkedHashMap<>();
+        List<Person> newPersons = new ArrayList<>();
+        resolvePersons(parsed.getPersons(), personMap, newPersons);
+
+        // 2. 比对角色，并把声优列表指向比对后的人员
+        Map<Long, Character> characterMap = new LinkedHashMap<>();
+        List<Character> newCharacters = new ArrayList<>();
+        resolveCharacters(parsed.getCharacters(), personMap, characterMap, newCharacters);
+
+        // 3. 使用 MERGE 原子化保存所有新增人员
+        if (!newPersons.isEmpty()) {
+            newPersons.sort(Comparator.comparing(Person::getId));
+            batchMergePersons(newPersons);
+            log.info("合并了 {} 个Person", newPersons.size());
+        }
+
+        // 4. 使用 MERGE 保存新增角色，并发导入同一角色时不会因主键冲突回滚
+        if (!newCharacters.isEmpty()) {
+            newCharacters.sort(Comparator.comparing(Character::getId));
+            batchMergeCharacters(newCharacters);
+            log.info("合并了 {} 个新Character", newCharacters.size());
+        }
+
+        // 5. 保存主条目；与角色、人员的关联表随后用 JDBC 批量写入，
+        //    交给 Hibernate 合并时每个未托管的角色 / 人员都要单独 SELECT 一次
+        Subject subject = parsed.getSubject();
+        subject.setCharacters(new ArrayList<>());
+        subject.setPersons(new ArrayList<>());
+        // 其余剧集分页写完之前同步时间保持为空，中途失败时下次同步会补齐；
+        // 离线数据包不含图片，同样不记录同步时间，下次在线同步时完整拉取
+        subject.setLastSyncedAt(parsed.isOffline() || parsed.hasRemainingEpisodes() ? null : LocalDateTime.now());
+        // 剧集通过 JDBC 写入，需要先把主条目刷到数据库以满足外键
+        subject = subjectRepository.saveAndFlush(subject);
+
+        List<Object[]> characterLinks = new ArrayList<>();
+        characterMap.keySet().forEach(characterId -> characterLinks.add(new Object[]{subjectId, characterId}));
+        jdbcTemplate.batchUpdate("INSERT INTO subject_character (subject_id, character_id) VALUES (?, ?)", characterLinks);
+        List<Object[]> personLinks = new ArrayList<>();
+        personMap.keySet().forEach(personId -> personLinks.add(new Object[]{subjectId, personId}));
+        jdbcTemplate.batchUpdate("INSERT INTO subject_person (subject_id, person_id) VALUES (?, ?)", personLinks);
+
+        // 6. 保存剧集和Infobox
+        saveEpisodes(parsed.getEpisodes(), subject.getId());
+        saveInfoboxes(parsed.getInfoboxes(), subject);
+        saveValidator(parsed.getValidator());
+        confirmAfterCommit(personIdCache, personMap.keySet());
+        confirmAfterCommit(characterIdCache, characterMap.keySet());
+        log.info("完成导入新动漫ID: {}", subjectId);
+    }
+
+    /**
+     * 更新已有条目的 Bangumi 评分，库中缺少封面时一并补齐。离线数据包的更新不记录同步时间。
+     */
+    @Transactional
+    public void updateSubject(ParsedSubjectDTO parsed) {
+        Long subjectId = parsed.getSubjectId();
+        Rating fetched = parsed.getRating();
+        Subject subject = subjectRepository.findById(subjectId).orElse(null);
+        if (subject == null || fetched == null) {
+            return;
+        }
+
+        // 仅更新 Bangumi 评分字段
+        Rating rating = subject.getRating();
+        if (rating == null) {
+            rating = new Rating();
+        }
+        rating.setRank(fetched.getRank());
+        rating.setTotal(fetched.getTotal());
+        rating.setScore(fetched.getScore());
+        // 保留原有其他属性
+        rating.setInformation(rating.getInformation() != null ? rating.getInformation() : 0.0);
+        rating.setStory(rating.getStory() != null ? rating.getStory() : 0.0);
+        rating.setCharacter(rating.getCharacter() != null ? rating.getCharacter() : 0.0);
+        rating.setQuality(rating.getQuality() != null ? rating.getQuality() : 0.0);
+        rating.setAtmosphere(rating.getAtmosphere() != null ? rating.getAtmosphere() : 0.0);
+        rating.setLove(rating.getLove() != null ? rating.getLove() : 0.0);
+        rating.setTotalscore(rating.getTotalscore() != null ? rating.getTotalscore() : 0.0);
+
+        subject.setRating(rating);
+        if (parsed.getImages() != null && (subject.getImages() == null || subject.getImages().getLarge() == null)) {
+            subject.setImages(parsed.getImages());
+        }
+        if (!parsed.isOffline()) {
+            subject.setLastSyncedAt(LocalDateTime.now());
+        }
+        subjectRepository.save(subject);
+        saveValidator(parsed.getValidator());
+        log.info("动漫 {} 评分更新成功", subjectId);
+    }
+
+    /**
+     * 放送中条目的增量同步：更新评分，只插入本地缺失的剧集、角色与条目-角色关联。
+     * 已有的剧集和角色行不做任何修改，用户标记的态度保持不变。
+     */
+    @Transactional
+    public void syncSubjectDelta(ParsedSubjectDTO parsed) {
+        long subjectId = parsed.getSubjectId();
+        if (parsed.getRating() != null) {
+            updateSubject(parsed);
+        } else if (!parsed.isOffline()) {
+            markSynced(List.of(subjectId)); // 主条目 304，评分未变化
+        }
+
+        // 1. 剧集：与本地已有的剧集 ID 比对，只写入新的
+        Set<Long> knownEpisodes = new HashSet<>(episodeRepository.findIdsBySubjectId(subjectId));
+        List<Episode> newEpisodes = parsed.getEpisodes().stream()
+                .filter(episode -> !knownEpisodes.contains(episode.getId()))
+                .toList();
+        saveEpisodes(newEpisodes, subjectId);
+
+        // 2. 角色：只处理尚未与本条目关联的角色
+        Set<Long> linked = new HashSet<>(jdbcTemplate.queryForList(
+                "SELECT character_id FROM subject_character WHERE subject_id = ?", Long.class, subjectId));
+        List<Character> unlinked = parsed.getCharacters().stream()
+                .filter(character -> !linked.contains(character.getId()))
+                .toList();
+        if (!unlinked.isEmpty()) {
+            Set<Long> existingCharacters = findExisting(characterIdCache,
+                    unlinked.stream().map(Character::getId).toList(), characterRepository::findExistingIds);
+            List<Character> newCharacters = new ArrayList<>(unlinked.stream()
+                    .filter(character -> !existingCharacters.contains(character.getId()))
+                    .toList());
+            // 新关联角色的声优：尚未入库的人员先写入，满足 casts 表与 subject_person 的外键
+            Map<Long, Person> casts = new LinkedHashMap<>();
+            for (Character character : unlinked) {
+                if (character.getCasts() != null) {
+                    character.getCasts().forEach(person -> casts.putIfAbsent(person.getId(), person));
+                }
+            }
+            Set<Long> existingPersons = findExisting(personIdCache, casts.keySet(),
+                    personRepository::findExistingIds);
+            List<Person> newPersons = new ArrayList<>(casts.values().stream()
+                    .filter(person -> !existingPersons.contains(person.getId()))
+                    .toList());
+            if (!newPersons.isEmpty()) {
+                newPersons.sort(Comparator.comparing(Person::getId));
+                batchMergePersons(newPersons);
+            }
+            if (!newCharacters.isEmpty()) {
+                newCharacters.sort(Comparator.comparing(Character::getId));
+                batchMergeCharacters(newCharacters);
+            }
+            confirmAfterCommit(personIdCache, casts.keySet());
+            confirmAfterCommit(characterIdCache, unlinked.stream().map(Character::getId).toList());
+            List<Object[]> links = new ArrayList<>();
+            unlinked.forEach(character -> links.add(new Object[]{subjectId, character.getId()}));
+            jdbcTemplate.batchUpdate("INSERT INTO subject_character (subject_id, character_id) VALUES (?, ?)", links);
+
+            // 完整导入时声优会并入条目的人员列表，这里同样补上条目-人员关联，按人员搜索才能找到本条目
+            Set<Long> linkedPersons = new HashSet<>(jdbcTemplate.queryForList(
+                    "SELECT person_id FROM subject_person WHERE subject_id = ?", Long.class, subjectId));
+            List<Object[]> personLinks = new ArrayList<>();
+            casts.keySet().stream()
+                    .filter(personId -> !linkedPersons.contains(personId))
+                    .forEach(personId -> personLinks.add(new Object[]{subjectId, personId}));
+            if (!personLinks.isEmpty()) {
+                jdbcTemplate.batchUpdate("INSERT INTO subject_person (subject_id, person_id) VALUES (?, ?)", personLinks);
+            }
+        }
+        if (parsed.isRefill()) {
+            fillMissingImages("persons", "person_id", parsed.getPersons(), Person::getId, Person::getImages);
+            fillMissingImages("characters", "character_id", parsed.getCharacters(), Character::getId,
+                    Character::getImages);
+        }
+        if (parsed.hasRemainingEpisodes()) {
+            jdbcTemplate.update("UPDATE subject SET last_synced_at = NULL WHERE id = ?", subjectId);
+        }
+        log.info("动漫 {} 增量同步完成: 新增 {} 集, {} 个角色", subjectId, newEpisodes.size(), unlinked.size());
+    }
+
+    /**
+     * 只填写库中为空的图片地址，其余列（以及用户标记的态度）保持不变。
+     * 离线数据包导入的人员与角色没有图片，在线补齐时由这里写入。
+     */
+    private <T> void fillMissingImages(String table, String idColumn, List<T> entities, Function<T, Long> id,
+                                       Function<T, Images> images) {
+        List<Object[]> args = new ArrayList<>();
+        for (T entity : entities) {
+            Images value = images.apply(entity);
+            if (value != null) {
+                args.add(new Object[]{value.getSmall(), value.getGrid(), value.getLarge(), value.getMedium(),
+                        value.getCommon(), id.apply(entity)});
+            }
+        }
+        if (args.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.batchUpdate("UPDATE " + table + " SET small_image_url = COALESCE(small_image_url, ?), "
+                + "grid_image_url = COALESCE(grid_image_url, ?), large_image_url = COALESCE(large_image_url, ?), "
+                + "medium_image_url = COALESCE(medium_image_url, ?), common_image_url = COALESCE(common_image_url, ?) "
+                + "WHERE " + idColumn + " = ?", args);
+    }
+
+    /**
+     * 写入条目提交后逐页请求到的一页剧集，已存在的剧集保持不变。
+     */
+    @Transactional
+    public void saveEpisodePage(long subjectId, List<Episode> episodes) {
+        saveEpisodes(episodes, subjectId);
+    }
+
+    /**
+     * 条件请求返回 304 的条目内容未变化，只批量刷新同步时间，下一个刷新周期内不再请求。
+     */
+    @Transactional
+    public void markSynced(Collection<Long> subjectIds) {
+        if (subjectIds.isEmpty()) {
+            return;
+        }
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        List<Object[]> args = new ArrayList<>();
+        for (Long subjectId : subjectIds) {
+            args.add(new Object[]{now, subjectId});
+        }
+        jdbcTemplate.batchUpdate("UPDATE subject SET last_synced_at = ? WHERE id = ?", args);
+    }
+
+    // 响应校验信息只在条目写入成功后保存，事务回滚时一并回滚，保证下次仍会完整拉取
+    private void saveValidator(HttpValidator validator) {
+        if (validator == null) {
+            return;
+        }
+        validator.setUpdatedAt(LocalDateTime.now());
+        httpValidatorRepository.save(validator);
+    }
+
+    private void resolvePersons(List<Person> parsedPersons, Map<Long, Person> personMap, List<Person> newPersons) {
+        // 一次 IN 查询得到已存在的人员，本次导入中已确认的人员直接命中缓存
+        Set<Long> existingIds = findExisting(personIdCache, parsedPersons.stream().map(Person::getId).toList(),
+                personRepository::findExistingIds);
+        for (Person person : parsedPersons) {
+            if (personMap.containsKey(person.getId())) continue; // 已缓存，跳过
+
+            if (existingIds.contains(person.getId())) {
+                // 只需要建立关联，使用引用代理，不再逐个加载
+                personMap.put(person.getId(), personRepository.getReferenceById(person.getId()));
+            } else {
+                personMap.put(person.getId(), person);
+                newPersons.add(person); // 待新增
+            }
+        }
+    }
+
+    private static Set<Long> findExisting(ResolvedIdCache cache, Collection<Long> ids,
+                                          Function<Collection<Long>, Collection<Long>> loader) {
+        if (ids.isEmpty()) {
+            return Set.of();
+        }
+        return cache != null ? cache.findExisting(ids, loader) : new HashSet<>(loader.apply(ids));
+    }
+
+    // 事务提交后才把 ID 记入缓存，回滚的写入不会被当作已存在
+    private static void confirmAfterCommit(ResolvedIdCache cache, Collection<Long> ids) {
+        if (cache == null || ids.isEmpty()) {
+            return;
+        }
+        List<Long> committed = List.copyOf(ids);
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            cache.confirm(committed);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                cache.confirm(committed);
+            }
+        });
+    }
+
+    private void resolveCharacters(List<Character> parsedCharacters, Map<Long, Person> personMap,
+                                   Map<Long, Character> characterMap, List<Character> newCharacters) {
+        // 已存在的角色需要更新声优列表，一次 IN 查询加载全部托管实体
+        Map<Long, Character> existingCharacters = new HashMap<>();
+        if (!parsedCharacters.isEmpty()) {
+            characterRepository.findAllById(parsedCharacters.stream().map(Character::getId).toList())
+                    .forEach(c -> existingCharacters.put(c.getId(), c));
+        }
+        for (Character parsedCharacter : parsedCharacters) {
+            long id = parsedCharacter.getId();
+            if (characterMap.containsKey(id)) continue;
+
+            Character character;
+            Character existing = existingCharacters.get(id);
+            if (existing != null) {
+                character = existing; // 使用托管实体
+                // 注意：目前 API 返回的角色信息可能不会变化，所以不更新已有字段，保持已有数据
+            } else {
+                character = parsedCharacter;
+                newCharacters.add(character);
+            }
+
+            // 声优列表无论新旧角色都要更新，指向比对后的人员
+            if (parsedCharacter.getCasts() != null) {
+                List<Person> casts = new ArrayList<>();
+                for (Person actor : parsedCharacter.getCasts()) {
+                    casts.add(personMap.getOrDefault(actor.getId(), actor));
+                }
+                character.setCasts(casts);
+            }
+
+            characterMap.put(id, character);
+        }
+    }
+
+    /**
+     * 使用 H2 的 MERGE 语句批量插入或忽略人员，并同步更新 careers 表。
+     * 此操作是原子的，可彻底避免并发插入时的主键冲突。
+     */
+    private void batchMergePersons(List<Person> persons) {
+        String sql = "MERGE INTO persons (person_id, name, short_summary, person_type, locked, " +
+                "small_image_url, grid_image_url, large_image_url, medium_image_url, common_image_url) " +
+                "KEY(person_id) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+        jdbcTemplate.batchUpdate(sql, new BatchPreparedStatementSetter() {
+            @Override
+            public void setValues(PreparedStatement ps, int i) throws SQLException {
+                Person p = persons.get(i);
+                Images images = p.getImages();
+                ps.setLong(1, p.getId());
+                ps.setString(2, p.getName());
+                ps.setString(3, p.getShortSummary());
+                ps.setInt(4, p.getType());
+                ps.setBoolean(5, p.getLocked());
+                ps.setString(6, images != null ? images.getSmall() : null);
+                ps.setString(7, images != null ? images.getGrid() : null);
+                ps.setString(8, images != null ? images.getLarge() : null);
+                ps.setString(9, images != null ? images.getMedium() : null);
+                ps.setString(10, images != null ? images.getCommon() : null);
+            }
+            @Override
+            public int getBatchSize() {
+                return persons.size();
+            }
+        });
+
+        // 处理 careers (person_careers 表)：所有人员的删除与插入各合并为一个 JDBC 批次
+        List<Object[]> deleteArgs = new ArrayList<>();
+        List<Object[]> insertArgs = new ArrayList<>();
+        for (Person p : persons) {
+            deleteArgs.add(new Object[]{p.getId()});
+            if (p.getCareers() != null) {
+                for (String career : p.getCareers()) {
+                    insertArgs.add(new Object[]{p.getId(), career});
+                }
+            }
+        }
+        int batches = replaceChildRows("DELETE FROM person_careers WHERE person_id = ?", deleteArgs,
+                "INSERT INTO person_careers (person_id, career) VALUES (?, ?)", insertArgs);
+        log.debug("人员写入: {} 个人员, {} 条职业, {} 个JDBC批次", persons.size(), insertArgs.size(), batches + 1);
+    }
+
+    /**
+     * 使用 H2 的 MERGE 语句批量插入或忽略角色，并同步更新 casts 关联表。
+     * 已存在的角色行保持不变（保留用户的态度），调用方需持有这些角色 ID 的分段锁。
+     */
+    private void batchMergeCharacters(List<Character> characters) {
+        String sql = "MERGE INTO characters t USING (VALUES (CAST(? AS BIGINT))) AS s(id) ON t.character_id = s.id " +
+                "WHEN NOT MATCHED THEN INSERT (character_id, name, summary, relation, character_type, attitude, " +
+                "small_image_url, grid_image_url, large_image_url, medium_image_url, common_image_url) " +
+                "VALUES (s.id, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+        jdbcTemplate.batchUpdate(sql, new BatchPreparedStatementSetter() {
+            @Override
+            public void setValues(PreparedStatement ps, int i) throws SQLException {
+                Character c = characters.get(i);
+                Images images = c.getImages();
+                ps.setLong(1, c.getId());
+                ps.setString(2, c.getName());
+                ps.setString(3, c.getSummary());
+                ps.setString(4, c.getRelation());
+                ps.setInt(5, c.getType());
+                ps.setInt(6, c.getAttitude());
+                ps.setString(7, images != null ? images.getSmall() : null);
+                ps.setString(8, images != null ? images.getGrid() : null);
+                ps.setString(9, images != null ? images.getLarge() : null);
+                ps.setString(10, images != null ? images.getMedium() : null);
+                ps.setString(11, images != null ? images.getCommon() : null);
+            }
+            @Override
+            public int getBatchSize() {
+                return characters.size();
+            }
+        });
+
+        // 处理 casts (character_cast 表)：所有角色的删除与插入各合并为一个 JDBC 批次
+        List<Object[]> deleteArgs = new ArrayList<>();
+        List<Object[]> insertArgs = new ArrayList<>();
+        for (Character c : characters) {
+            deleteArgs.add(new Object[]{c.getId()});
+            if (c.getCasts() != null) {
+                for (Person person : c.getCasts()) {
+                    insertArgs.add(new Object[]{c.getId(), person.getId()});
+                }
+            }
+        }
+        int batches = replaceChildRows("DELETE FROM character_cast WHERE character_id = ?", deleteArgs,
+                "INSERT INTO character_cast (character_id, person_id) VALUES (?, ?)", insertArgs);
+        log.debug("角色写入: {} 个角色, {} 条声优关联, {} 个JDBC批次", characters.size(), insertArgs.size(), batches + 1);
+    }
+
+    /**
+     * 以整体替换的方式写入子表：先一个批次删除所有父 ID 的旧行，再一个批次插入全部新行。
+     * 语句数量与父实体数量无关，返回实际执行的 JDBC 批次数。
+     */
+    private int replaceChildRows(String deleteSql, List<Object[]> deleteArgs, String insertSql, List<Object[]> insertArgs) {
+        int batches = 0;
+        if (!deleteArgs.isEmpty()) {
+            jdbcTemplate.batchUpdate(deleteSql, deleteArgs);
+            batches++;
+        }
+        if (!insertArgs.isEmpty()) {
+            jdbcTemplate.batchUpdate(insertSql, insertArgs);
+            batches++;
+        }
+        return batches;
+    }
+
+    /**
+     * 分块批量写入剧集，长篇番剧不会一次性进入持久化上下文。
+     * 已存在的剧集保持不变（保留用户的观看态度）。
+     */
+    private void saveEpisodes(List<Episode> episodes, long subjectId) {
+        String sql = "MERGE INTO episodes t USING (VALUES (CAST(? AS BIGINT))) AS s(id) ON t.id = s.id " +
+                "WHEN NOT MATCHED THEN INSERT (id, subect_id, ep, name, name_cn, airdate, duration, description, attitude) " +
+                "VALUES (s.id, ?, ?, ?, ?, ?, ?, ?, ?)";
+        int batchSize = ImportSettings.episodeBatchSize();
+        for (int from = 0; from < episodes.size(); from += batchSize) {
+            List<Episode> chunk = episodes.subList(from, Math.min(from + batchSize, episodes.size()));
+            jdbcTemplate.batchUpdate(sql, new BatchPreparedStatementSetter() {
+                @Override
+                public void setValues(PreparedStatement ps, int i) throws SQLException {
+                    Episode e = chunk.get(i);
+                    ps.setLong(1, e.getId());
+                    ps.setLong(2, subjectId);
+                    ps.setInt(3, e.getEp());
+                    ps.setString(4, e.getName());
+                    ps.setString(5, e.getNameCn());
+                    ps.setString(6, e.getAirdate());
+                    ps.setString(7, e.getDuration());
+                    ps.setString(8, e.getDescription());
+                    ps.setInt(9, e.getAttitude() != null ? e.getAttitude() : 0);
+                }
+                @Override
+                public int getBatchSize() {
+                    return chunk.size();
+                }
+            });
+        }
+        if (episodes.size() > batchSize) {
+            log.info("分 {} 批写入 {} 集", (episodes.size() + batchSize - 1) / batchSize, episodes.size());
+        }
+    }
+
+    private void saveInfoboxes(List<Infobox> infoboxes, Subject subject) {
+        for (Infobox infobox : infoboxes) {
+            infobox.setSubject(subject);
+            infobox.setInfoboxId(null); // 整组回滚后逐条重试时，清除回滚事务中分配的 ID
+        }
+
+        // 批量保存
+        if (!infoboxes.isEmpty()) {
+            infoboxRepository.saveAll(infoboxes);
+        }
+    }
+}
@@ -0,0 +1,400 @@
+package com.example.animemanager.Service;
+
+import com.example.animemanager.DTO.ImportDTO;
+import com.example.animemanager.DTO.ParsedSubjectDTO;
+import com.example.animemanager.Util.CancellationToken;
+import com.example.animemanager.Util.ImportExecutor;
+import com.example.animemanager.Util.ImportMetrics;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 分阶段的导入流水线：抓取 → 解析 → 持久化。
+ * 阶段之间通过有界队列连接，下游处理不过来时上游会阻塞（背压），
+ * 每个阶段有独立的执行器与工作线程数，网络阶段可以保持满载，而持久化阶段顺序写入。
+ * 每次导入创建一个新实例。
+ * 导入取消后抓取阶段不再领取新条目，已进入队列的条目照常解析和写库，
+ * 保证正在进行的事务完整提交。
+ */
+@Slf4j
+public class ImportPipeline {
+
+    @FunctionalInterface
+    public interface Stage<I, O> {
+        // 返回 null 表示该条目被跳过
+        O apply(I input) throws Exception;
+    }
+
+    @FunctionalInterface
+    public interface AsyncStage<I, O> {
+        // future 以 null 完成表示该条目被跳过
+        CompletableFuture<O> apply(I input) throws Exception;
+    }
+
+    @FunctionalInterface
+    public interface Sink<I> {
+        void accept(I input) throws Exception;
+    }
+
+    @FunctionalInterface
+    public interface Listener {
+        // 条目处理结束，失败时 reason 为失败原因
+        void finished(Long subjectId, boolean success, String reason);
+    }
+
+    @FunctionalInterface
+    public interface GroupSink<I> {
+        // 一次写入一组条目，返回其中写入失败的条目
+        List<I> accept(List<I> group) throws Exception;
+    }
+
+    private static final int PROGRESS_LOG_INTERVAL = 10;
+    private static final long POLL_TIMEOUT_MS = 200;
+
+    private final ImportExecutor executor;
+    private final ImportMetrics metrics;
+    private final int fetchWorkers;
+    private final int parseWorkers;
+    private final int persistWorkers;
+    private final int groupSize;
+    private final long groupWaitMs;
+    private final Stage<Long, ImportDTO> fetcher;
+    private final Stage<ImportDTO, ParsedSubjectDTO> parser;
+    private final GroupSink<ParsedSubjectDTO> persister;
+
+    private final BlockingQueue<ImportDTO> fetchedQueue;
+    private final BlockingQueue<ParsedSubjectDTO> parsedQueue;
+    private final Map<Long, Long> startTimes = new ConcurrentHashMap<>();
+    private final AtomicInteger finished = new AtomicInteger();
+    private volatile int total;
+    private volatile Semaphore inFlightPermits; // 仅异步抓取时使用，条目结束时归还
+    private volatile CancellationToken cancellation = new CancellationToken();
+    private Listener listener = (subjectId, success, reason) -> { };
+
+    public ImportPipeline(ImportExecutor executor, ImportMetrics metrics,
+                          int fetchWorkers, int parseWorkers, int persistWorkers, int queueCapacity,
+                          int groupSize, long groupWaitMs,
+                          Stage<Long, ImportDTO> fetcher,
+                          Stage<ImportDTO, ParsedSubjectDTO> parser,
+                          GroupSink<ParsedSubjectDTO> persister) {
+        this.executor = executor;
+        this.metrics = metrics;
+        this.fetchWorkers = Math.max(1, fetchWorkers);
+        this.parseWorkers = Math.max(1, parseWorkers);
+        this.persistWorkers = Math.max(1, persistWorkers);
+        this.groupSize = Math.max(1, groupSize);
+        this.groupWaitMs = Math.max(0, groupWaitMs);
+        this.fetcher = fetcher;
+        this.parser = parser;
+        this.persister = persister;
+        this.fetchedQueue = new ArrayBlockingQueue<>(Math.max(1, queueCapacity));
+        this.parsedQueue = new ArrayBlockingQueue<>(Math.max(1, queueCapacity));
+    }
+
+    public void onFinished(Listener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * 取消后停止领取新条目，队列中已有的条目处理完后流水线正常结束。
+     */
+    public void setCancellation(CancellationToken cancellation) {
+        this.cancellation = cancellation;
+    }
+
+    /**
+     * 处理全部条目，阻塞直到三个阶段都完成。
+     */
+    public void run(List<Long> subjectIds) throws InterruptedException {
+        total = subjectIds.size();
+        log.info("流水线启动: 抓取 {} / 解析 {} / 持久化 {} 个工作线程，队列容量 {}，每个事务最多 {} 个条目",
+                fetchWorkers, parseWorkers, persistWorkers, fetchedQueue.remainingCapacity(), groupSize);
+
+        BlockingQueue<Long> pending = new LinkedBlockingQueue<>(subjectIds);
+        CountDownLatch fetchDone = new CountDownLatch(fetchWorkers);
+        List<Future<?>> workers = new ArrayList<>();
+        List<ExecutorService> stages = new ArrayList<>();
+
+        try {
+            ExecutorService fetchStage = stage(stages, "fetch", fetchWorkers);
+            for (int i = 0; i < fetchWorkers; i++) {
+                workers.add(fetchStage.submit(() -> {
+                    try {
+                        fetchLoop(pending);
+                    } finally {
+                        fetchDone.countDown();
+                    }
+                    return null;
+                }));
+            }
+            startDownstream(fetchDone, workers, stages);
+            awaitWorkers(workers);
+        } finally {
+            stages.forEach(ExecutorService::shutdown);
+        }
+    }
+
+    /**
+     * 异步抓取：由调用线程按在途上限逐个发起非阻塞请求，请求完成的回调把结果放入解析队列，
+     * 解析与持久化阶段与 {@link #run(List)} 完全相同。
+     * 在途条目（含等待解析和写库的）不超过 maxInFlight 个，队列容量需不小于该值。
+     */
+    public void runAsync(List<Long> subjectIds, AsyncStage<Long, ImportDTO> asyncFetcher, int maxInFlight)
+            throws InterruptedException {
+        total = subjectIds.size();
+        int limit = Math.max(1, Math.min(maxInFlight, fetchedQueue.remainingCapacity()));
+        log.info("异步流水线启动: 最多 {} 个条目在途，解析 {} / 持久化 {} 个工作线程，每个事务最多 {} 个条目",
+                limit, parseWorkers, persistWorkers, groupSize);
+
+        Semaphore permits = new Semaphore(limit);
+        inFlightPermits = permits;
+        CountDownLatch fetchDone = new CountDownLatch(1);
+        List<Future<?>> workers = new ArrayList<>();
+        List<ExecutorService> stages = new ArrayList<>();
+
+        try {
+            startDownstream(fetchDone, workers, stages);
+            List<CompletableFuture<?>> fetches = new ArrayList<>();
+            try {
+                for (Long subjectId : subjectIds) {
+                    if (!acquireInFlight(permits)) {
+                        break; // 已取消，不再发起新的请求
+                    }
+                    startTimes.put(subjectId, metrics.subjectStarted());
+                    fetches.add(startFetch(asyncFetcher, subjectId));
+                }
+                CompletableFuture.allOf(fetches.toArray(new CompletableFuture[0])).join();
+            } catch (InterruptedException e) {
+                stopWorkers(workers);
+                fetches.forEach(fetch -> fetch.cancel(false));
+                throw e;
+            } finally {
+                fetchDone.countDown();
+            }
+            awaitWorkers(workers);
+        } finally {
+            stages.forEach(ExecutorService::shutdown);
+        }
+    }
+
+    // 每个阶段使用独立的执行器，线程数即该阶段的工作线程数
+    private ExecutorService stage(List<ExecutorService> stages, String name, int threads) {
+        ExecutorService stage = executor.newStageExecutor(name, threads);
+        stages.add(stage);
+        return stage;
+    }
+
+    /**
+     * 只阻塞调用线程，在途条目结束后归还；定时醒来检查是否已取消，取消时返回 false。
+     */
+    private boolean acquireInFlight(Semaphore permits) throws InterruptedException {
+        while (!cancellation.isCancelled()) {
+            if (permits.tryAcquire(POLL_TIMEOUT_MS, TimeUnit.MILLISECONDS)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private CompletableFuture<?> startFetch(AsyncStage<Long, ImportDTO> asyncFetcher, Long subjectId) {
+        CompletableFuture<ImportDTO> future;
+        try {
+            future = asyncFetcher.apply(subjectId);
+        } catch (Exception e) {
+            future = CompletableFuture.failedFuture(e);
+        }
+        return future.handle((dto, error) -> {
+            if (error != null) {
+                Throwable cause = error instanceof CompletionException && error.getCause() != null
+                        ? error.getCause() : error;
+                log.error("SubjectID: {} 抓取失败: {}", subjectId, cause.getMessage(), cause);
+                finish(subjectId, false, "抓取失败: " + cause.getMessage());
+            } else if (dto == null) {
+                log.warn("SubjectID: {} 抓取阶段无结果，跳过", subjectId);
+                finish(subjectId, false, "抓取阶段无结果");
+            } else if (dto.isNotModified()) {
+                finish(subjectId, true, null); // 条件请求命中，无需解析和写库
+            } else if (!fetchedQueue.offer(dto)) {
+                // 在途数量受信号量限制，正常情况下不会发生
+                finish(subjectId, false, "抓取队列已满");
+            }
+            return null;
+        });
+    }
+
+    /**
+     * 启动解析与持久化阶段的工作线程，抓取阶段结束（fetchDone 归零）且队列清空后退出。
+     */
+    private void startDownstream(CountDownLatch fetchDone, List<Future<?>> workers, List<ExecutorService> stages) {
+        CountDownLatch parseDone = new CountDownLatch(parseWorkers);
+        ExecutorService parseStage = stage(stages, "parse", parseWorkers);
+        ExecutorService persistStage = stage(stages, "persist", persistWorkers);
+        for (int i = 0; i < parseWorkers; i++) {
+            workers.add(parseStage.submit(() -> {
+                try {
+                    drainLoop(fetchedQueue, fetchDone, dto -> {
+                        ParsedSubjectDTO parsed = runStep("解析", dto.getSubjectId(), parser, dto);
+                        if (parsed != null) {
+                            parsedQueue.put(parsed); // 队列满时阻塞，形成背压
+                        }
+                    });
+                } finally {
+                    parseDone.countDown();
+                }
+                return null;
+            }));
+        }
+        for (int i = 0; i < persistWorkers; i++) {
+            workers.add(persistStage.submit(() -> {
+                groupLoop(parseDone);
+                return null;
+            }));
+        }
+    }
+
+    private void awaitWorkers(List<Future<?>> workers) throws InterruptedException {
+        try {
+            for (Future<?> worker : workers) {
+                worker.get();
+            }
+        } catch (ExecutionException e) {
+            log.error("流水线工作线程异常退出", e.getCause());
+        } catch (InterruptedException e) {
+            stopWorkers(workers);
+            throw e;
+        }
+    }
+
+    /**
+     * 调用线程被中断时停止流水线。解析与持久化线程可能正在写库，不能中断（H2 会因此关闭数据库文件），
+     * 只发出取消信号：进行中的请求被中止，抓取不再领取新条目，已在队列中的条目写库后工作线程自行退出。
+     */
+    private void stopWorkers(List<Future<?>> workers) {
+        cancellation.cancel();
+        workers.forEach(worker -> worker.cancel(false));
+    }
+
+    public int fetchedQueueSize() {
+        return fetchedQueue.size();
+    }
+
+    public int parsedQueueSize() {
+        return parsedQueue.size();
+    }
+
+    private void fetchLoop(BlockingQueue<Long> pending) throws InterruptedException {
+        Long subjectId;
+        while (!cancellation.isCancelled() && (subjectId = pending.poll()) != null) {
+            startTimes.put(subjectId, metrics.subjectStarted());
+            ImportDTO dto = runStep("抓取", subjectId, fetcher, subjectId);
+            if (dto != null && dto.isNotModified()) {
+                finish(subjectId, true, null); // 条件请求命中，无需解析和写库
+            } else if (dto != null) {
+                fetchedQueue.put(dto); // 队列满时阻塞，形成背压
+            }
+        }
+    }
+
+    /**
+     * 持续消费队列，直到上游全部结束且队列为空。
+     */
+    private <T> void drainLoop(BlockingQueue<T> queue, CountDownLatch upstreamDone, Sink<T> handler) throws Exception {
+        while (true) {
+            T item = queue.poll(POLL_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+            if (item != null) {
+                handler.accept(item);
+            } else if (upstreamDone.getCount() == 0 && queue.isEmpty()) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * 持久化阶段：攒够 groupSize 个条目，或第一个条目等待超过 groupWaitMs 后，一次性交给写入方。
+     */
+    private void groupLoop(CountDownLatch upstreamDone) throws InterruptedException {
+        while (true) {
+            ParsedSubjectDTO first = parsedQueue.poll(POLL_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+            if (first == null) {
+                if (upstreamDone.getCount() == 0 && parsedQueue.isEmpty()) {
+                    return;
+                }
+                continue;
+            }
+
+            List<ParsedSubjectDTO> group = new ArrayList<>(groupSize);
+            group.add(first);
+            long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(groupWaitMs);
+            while (group.size() < groupSize) {
+                long remaining = deadline - System.nanoTime();
+                ParsedSubjectDTO next = remaining > 0 ? parsedQueue.poll(remaining, TimeUnit.NANOSECONDS) : parsedQueue.poll();
+                if (next == null) {
+                    break;
+                }
+                group.add(next);
+            }
+            persistGroup(group);
+        }
+    }
+
+    private void persistGroup(List<ParsedSubjectDTO> group) throws InterruptedException {
+        List<ParsedSubjectDTO> failed;
+        try {
+            failed = persister.accept(group);
+        } catch (InterruptedException e) {
+            group.forEach(parsed -> finish(parsed.getSubjectId(), false, "持久化被中断"));
+            throw e;
+        } catch (Exception e) {
+            log.error("{} 个条目持久化失败: {}", group.size(), e.getMessage(), e);
+            failed = group;
+        }
+        Set<Long> failedIds = new HashSet<>();
+        failed.forEach(parsed -> failedIds.add(parsed.getSubjectId()));
+        for (ParsedSubjectDTO parsed : group) {
+            boolean success = !failedIds.contains(parsed.getSubjectId());
+            finish(parsed.getSubjectId(), success, success ? null : "持久化失败");
+        }
+    }
+
+    /**
+     * 执行单个阶段，失败或跳过时记录结果并返回 null。
+     */
+    private <I, O> O runStep(String stageName, Long subjectId, Stage<I, O> stage, I input) throws InterruptedException {
+        try {
+            O output = stage.apply(input);
+            if (output == null) {
+                log.warn("SubjectID: {} {}阶段无结果，跳过", subjectId, stageName);
+                finish(subjectId, false, stageName + "阶段无结果");
+            }
+            return output;
+        } catch (InterruptedException e) {
+            finish(subjectId, false, stageName + "被中断");
+            throw e;
+        } catch (Exception e) {
+            log.error("SubjectID: {} {}失败: {}", subjectId, stageName, e.getMessage(), e);
+            finish(subjectId, false, stageName + "失败: " + e.getMessage());
+            return null;
+        }
+    }
+
+    private void finish(Long subjectId, boolean success, String reason) {
+        Long startedAt = startTimes.remove(subjectId);
+        if (startedAt == null) {
+            return;
+        }
+        metrics.subjectFinished(startedAt, success);
+        Semaphore permits = inFlightPermits;
+        if (permits != null) {
+            permits.release();
+        }
+        listener.finished(subjectId, success, reason);
+        log.debug("Subject {} 处理耗时: {}ms", subjectId, (System.nanoTime() - startedAt) / 1_000_000);
+        int done = finished.incrementAndGet();
+        if (done % PROGRESS_LOG_INTERVAL == 0 || done == total) {
+            log.info("同步进度 {}/{}", done, total);
+        }
+    }
+}
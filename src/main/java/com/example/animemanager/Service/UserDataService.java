@@ -0,0 +1,203 @@
+package com.example.animemanager.Service;
+
+import com.example.animemanager.DTO.UserDataRecordDTO;
+import com.example.animemanager.DTO.UserDataStatsDTO;
+import com.example.animemanager.Repository.SubjectRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.*;
+import java.util.function.Consumer;
+
+/**
+ * 用户数据（六维评分、标签、角色与剧集态度）的数据库读写，文件格式由 {@link UserDataTransferService} 负责。
+ * 导出时逐行读取结果集交给调用方写出，不把整张表载入内存；导入时每批在一个事务中合并。
+ */
+@Slf4j
+@Service
+public class UserDataService {
+
+    private final SubjectRepository subjectRepository;
+    private final JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    public UserDataService(SubjectRepository subjectRepository, JdbcTemplate jdbcTemplate) {
+        this.subjectRepository = subjectRepository;
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * 依次输出全部标签、有评分或标签的条目、非中立的角色态度和剧集态度，在同一个只读事务中读取。
+     */
+    @Transactional(readOnly = true)
+    public UserDataStatsDTO export(Consumer<UserDataRecordDTO> sink) {
+        UserDataStatsDTO stats = new UserDataStatsDTO();
+
+        jdbcTemplate.query("SELECT name FROM tags ORDER BY name", rs -> {
+            UserDataRecordDTO record = new UserDataRecordDTO();
+            record.setKind(UserDataRecordDTO.TAG);
+            record.setName(rs.getString(1));
+            sink.accept(record);
+            stats.setTags(stats.getTags() + 1);
+        });
+
+        // 按条目排序后一个条目的多个标签是连续的行，逐行拼成一条记录
+        String subjectSql = "SELECT s.id, s.information, s.story, s.\"CHARACTER\", s.quality, s.atmosphere, " +
+                "s.love, s.totalscore, t.name FROM subject s " +
+                "LEFT JOIN subject_tags st ON st.subject_id = s.id LEFT JOIN tags t ON t.tag_id = st.tag_id " +
+                "WHERE s.information <> 0 OR s.story <> 0 OR s.\"CHARACTER\" <> 0 OR s.quality <> 0 " +
+                "OR s.atmosphere <> 0 OR s.love <> 0 OR s.totalscore <> 0 OR t.name IS NOT NULL " +
+                "ORDER BY s.id, t.name";
+        UserDataRecordDTO[] current = new UserDataRecordDTO[1];
+        jdbcTemplate.query(subjectSql, rs -> {
+            long id = rs.getLong(1);
+            if (current[0] == null || current[0].getId() != id) {
+                if (current[0] != null) {
+                    sink.accept(current[0]);
+                }
+                UserDataRecordDTO record = new UserDataRecordDTO();
+                record.setKind(UserDataRecordDTO.SUBJECT);
+                record.setId(id);
+                double[] scores = new double[7];
+                for (int i = 0; i < scores.length; i++) {
+                    scores[i] = rs.getDouble(i + 2);
+                }
+                if (Arrays.stream(scores).anyMatch(score -> score != 0)) {
+                    record.setInformation(scores[0]);
+                    record.setStory(scores[1]);
+                    record.setCharacter(scores[2]);
+                    record.setQuality(scores[3]);
+                    record.setAtmosphere(scores[4]);
+                    record.setLove(scores[5]);
+                    record.setTotalscore(scores[6]);
+                }
+                current[0] = record;
+                stats.setSubjects(stats.getSubjects() + 1);
+            }
+            String tag = rs.getString(9);
+            if (tag != null) {
+                if (current[0].getTags() == null) {
+                    current[0].setTags(new ArrayList<>());
+                }
+                current[0].getTags().add(tag);
+            }
+        });
+        if (current[0] != null) {
+            sink.accept(current[0]);
+        }
+
+        jdbcTemplate.query("SELECT character_id, attitude FROM characters WHERE attitude <> 0 ORDER BY character_id", rs -> {
+            sink.accept(attitude(UserDataRecordDTO.CHARACTER, rs.getLong(1), rs.getInt(2)));
+            stats.setCharacters(stats.getCharacters() + 1);
+        });
+        jdbcTemplate.query("SELECT id, attitude FROM episodes WHERE attitude <> 0 ORDER BY id", rs -> {
+            sink.accept(attitude(UserDataRecordDTO.EPISODE, rs.getLong(1), rs.getInt(2)));
+            stats.setEpisodes(stats.getEpisodes() + 1);
+        });
+        return stats;
+    }
+
+    /**
+     * 把一批记录合并到数据库：缺少的标签新建，条目的标签只增不减，
+     * 备份中有评分的条目与态度覆盖本地值。本地不存在的条目、角色、剧集，以及缺少或无法识别 kind 的记录计入 skipped。
+     */
+    @Transactional
+    public UserDataStatsDTO merge(List<UserDataRecordDTO> records) {
+        UserDataStatsDTO stats = new UserDataStatsDTO();
+        Set<String> tagNames = new LinkedHashSet<>();
+        Map<Long, UserDataRecordDTO> subjects = new LinkedHashMap<>();
+        List<Object[]> characterArgs = new ArrayList<>();
+        List<Object[]> episodeArgs = new ArrayList<>();
+        for (UserDataRecordDTO record : records) {
+            if (record.getKind() == null) {
+                log.warn("忽略缺少 kind 的用户数据记录: id={}", record.getId());
+                stats.setSkipped(stats.getSkipped() + 1);
+                continue;
+            }
+            switch (record.getKind()) {
+                case UserDataRecordDTO.TAG -> {
+                    tagNames.add(record.getName());
+                    stats.setTags(stats.getTags() + 1);
+                }
+                case UserDataRecordDTO.SUBJECT -> subjects.put(record.getId(), record);
+                case UserDataRecordDTO.CHARACTER -> characterArgs.add(new Object[]{record.getAttitude(), record.getId()});
+                case UserDataRecordDTO.EPISODE -> episodeArgs.add(new Object[]{record.getAttitude(), record.getId()});
+                default -> {
+                    log.warn("忽略未知的用户数据记录类型: {}", record.getKind());
+                    stats.setSkipped(stats.getSkipped() + 1);
+                }
+            }
+        }
+
+        Set<Long> existing = subjects.isEmpty()
+                ? Set.of() : new HashSet<>(subjectRepository.findExistingIds(subjects.keySet()));
+        List<Object[]> ratingArgs = new ArrayList<>();
+        List<Object[]> subjectTagArgs = new ArrayList<>();
+        for (UserDataRecordDTO subject : subjects.values()) {
+            if (!existing.contains(subject.getId())) {
+                stats.setSkipped(stats.getSkipped() + 1);
+                continue;
+            }
+            stats.setSubjects(stats.getSubjects() + 1);
+            if (subject.hasRating()) {
+                ratingArgs.add(new Object[]{subject.getInformation(), subject.getStory(), subject.getCharacter(),
+                        subject.getQuality(), subject.getAtmosphere(), subject.getLove(), subject.getTotalscore(),
+                        subject.getId()});
+            }
+            for (String tag : Objects.requireNonNullElse(subject.getTags(), List.<String>of())) {
+                tagNames.add(tag);
+                subjectTagArgs.add(new Object[]{subject.getId(), tag, subject.getId()});
+            }
+        }
+
+        if (!tagNames.isEmpty()) {
+            jdbcTemplate.batchUpdate("INSERT INTO tags (name, count) SELECT CAST(? AS VARCHAR), 0 " +
+                    "WHERE NOT EXISTS (SELECT 1 FROM tags WHERE name = ?)", tagNames.stream()
+                    .map(name -> new Object[]{name, name}).toList());
+        }
+        if (!ratingArgs.isEmpty()) {
+            jdbcTemplate.batchUpdate("UPDATE subject SET information = ?, story = ?, \"CHARACTER\" = ?, quality = ?, " +
+                    "atmosphere = ?, love = ?, totalscore = ? WHERE id = ?", ratingArgs);
+        }
+        if (!subjectTagArgs.isEmpty()) {
+            // subject_tags 没有主键，已有的关联不能重复插入
+            jdbcTemplate.batchUpdate("INSERT INTO subject_tags (subject_id, tag_id) SELECT CAST(? AS BIGINT), t.tag_id " +
+                    "FROM tags t WHERE t.name = ? AND NOT EXISTS " +
+                    "(SELECT 1 FROM subject_tags st WHERE st.subject_id = ? AND st.tag_id = t.tag_id)", subjectTagArgs);
+        }
+        if (!tagNames.isEmpty()) {
+            jdbcTemplate.batchUpdate("UPDATE tags t SET count = " +
+                    "(SELECT COUNT(*) FROM subject_tags st WHERE st.tag_id = t.tag_id) WHERE t.name = ?", tagNames.stream()
+                    .map(name -> new Object[]{name}).toList());
+        }
+
+        int matched = updated(jdbcTemplate.batchUpdate("UPDATE characters SET attitude = ? WHERE character_id = ?", characterArgs));
+        stats.setCharacters(matched);
+        stats.setSkipped(stats.getSkipped() + characterArgs.size() - matched);
+        matched = updated(jdbcTemplate.batchUpdate("UPDATE episodes SET attitude = ? WHERE id = ?", episodeArgs));
+        stats.setEpisodes(matched);
+        stats.setSkipped(stats.getSkipped() + episodeArgs.size() - matched);
+        return stats;
+    }
+
+    private static UserDataRecordDTO attitude(String kind, long id, int attitude) {
+        UserDataRecordDTO record = new UserDataRecordDTO();
+        record.setKind(kind);
+        record.setId(id);
+        record.setAttitude(attitude);
+        return record;
+    }
+
+    private static int updated(int[] counts) {
+        int matched = 0;
+        for (int count : counts) {
+            if (count > 0) {
+                matched++;
+            }
+        }
+        return matched;
+    }
+}
@@ -0,0 +1,133 @@
+package com.example.animemanager.Service;
+
+import com.example.animemanager.DTO.UserDataRecordDTO;
+import com.example.animemanager.DTO.UserDataStatsDTO;
+import com.example.animemanager.Util.ImportSettings;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * 用户数据备份文件的导出与导入。文件为 JSON Lines（文件名以 .gz 结尾时 gzip 压缩），
+ * 第一行是文件头，之后每行一条 {@link UserDataRecordDTO}。
+ * 导出和导入都逐行处理，占用的内存与库的大小无关，可用于在机器之间迁移数据或重建数据库后恢复评分。
+ */
+@Slf4j
+@Service
+public class UserDataTransferService {
+
+    public static final String FORMAT = "animemanager-userdata";
+    public static final int VERSION = 1;
+
+    private final UserDataService userDataService;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final ObjectWriter lineWriter = objectMapper.writerFor(UserDataRecordDTO.class);
+    private final ObjectReader lineReader = objectMapper.readerFor(UserDataRecordDTO.class);
+
+    @Autowired
+    public UserDataTransferService(UserDataService userDataService) {
+        this.userDataService = userDataService;
+    }
+
+    /**
+     * 导出到指定文件。先写入同目录的临时文件，完成后再替换目标文件，导出失败不会破坏已有的备份。
+     */
+    public UserDataStatsDTO exportTo(Path file) throws IOException {
+        long start = System.nanoTime();
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        UserDataStatsDTO stats;
+        try (OutputStream out = openOutput(temp, file.getFileName().toString().endsWith(".gz"))) {
+            UserDataRecordDTO header = new UserDataRecordDTO();
+            header.setKind(UserDataRecordDTO.META);
+            header.setName(FORMAT);
+            header.setVersion(VERSION);
+            writeLine(out, header);
+            stats = userDataService.export(record -> {
+                try {
+                    writeLine(out, record);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            Files.deleteIfExists(temp);
+            throw e.getCause();
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+        log.info("用户数据已导出到 {}: {}，用时 {}ms", file, stats, (System.nanoTime() - start) / 1_000_000);
+        return stats;
+    }
+
+    /**
+     * 从备份文件合并到当前数据库，每 user_data_batch_size 条记录提交一次。
+     * 中途失败时已提交的批次保留，重新导入同一文件是安全的。
+     */
+    public UserDataStatsDTO importFrom(Path file) throws IOException {
+        long start = System.nanoTime();
+        int batchSize = ImportSettings.userDataBatchSize();
+        UserDataStatsDTO stats = new UserDataStatsDTO();
+        try (InputStream in = openInput(file);
+             MappingIterator<UserDataRecordDTO> iterator = lineReader.readValues(in)) {
+            UserDataRecordDTO header = iterator.hasNext() ? iterator.next() : null;
+            if (header == null || !UserDataRecordDTO.META.equals(header.getKind()) || !FORMAT.equals(header.getName())) {
+                throw new IOException("不是 AnimeManager 用户数据文件: " + file);
+            }
+            if (header.getVersion() == null || header.getVersion() > VERSION) {
+                throw new IOException("不支持的用户数据文件版本: " + header.getVersion());
+            }
+            List<UserDataRecordDTO> batch = new ArrayList<>(batchSize);
+            while (iterator.hasNext()) {
+                batch.add(iterator.next());
+                if (batch.size() >= batchSize) {
+                    stats.add(userDataService.merge(batch));
+                    batch.clear();
+                }
+            }
+            if (!batch.isEmpty()) {
+                stats.add(userDataService.merge(batch));
+            }
+        }
+        log.info("已从 {} 导入用户数据: {}，用时 {}ms", file, stats, (System.nanoTime() - start) / 1_000_000);
+        return stats;
+    }
+
+    private void writeLine(OutputStream out, UserDataRecordDTO record) throws IOException {
+        out.write(lineWriter.writeValueAsBytes(record));
+        out.write('\n');
+    }
+
+    private static OutputStream openOutput(Path file, boolean gzip) throws IOException {
+        OutputStream out = Files.newOutputStream(file);
+        return new BufferedOutputStream(gzip ? new GZIPOutputStream(out, 64 * 1024) : out, 64 * 1024);
+    }
+
+    /**
+     * 按文件头的魔数判断是否 gzip 压缩，不依赖扩展名。
+     */
+    private static InputStream openInput(Path file) throws IOException {
+        BufferedInputStream in = new BufferedInputStream(Files.newInputStream(file), 64 * 1024);
+        in.mark(2);
+        int first = in.read();
+        int second = in.read();
+        in.reset();
+        boolean gzip = first == (GZIPInputStream.GZIP_MAGIC & 0xff) && second == (GZIPInputStream.GZIP_MAGIC >> 8);
+        return gzip ? new GZIPInputStream(in, 64 * 1024) : in;
+    }
+}
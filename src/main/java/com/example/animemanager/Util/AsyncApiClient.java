@@ -0,0 +1,261 @@
+package com.example.animemanager.Util;
+
+import com.example.animemanager.DTO.ApiResponseDTO;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * 异步导入引擎使用的非阻塞 API 客户端，基于 JDK HttpClient 的 sendAsync（优先使用 HTTP/2）。
+ * 等待令牌和重试退避都交给定时器延后执行，不会有线程在 sleep 中空等，
+ * 几百个请求同时在途也只占用少量线程。
+ * 重试耗尽或遇到不可重试的 4xx 时，返回的 future 以 null 完成，与同步路径的约定一致。
+ * 导入取消时 {@link #abort()} 中止在途请求并唤醒等待中的定时任务，相关 future 同样以 null 完成。
+ */
+@Slf4j
+public class AsyncApiClient {
+
+    private static final Duration CONNECT_TIMEOUT = Duration.ofSeconds(10);
+    private static final Duration REQUEST_TIMEOUT = Duration.ofSeconds(60);
+
+    private final ExecutorService executor;
+    private final HttpClient httpClient;
+    private final ObjectMapper objectMapper;
+    private final TokenBucketRateLimiter rateLimiter;
+    private final ResponseCache responseCache; // 未启用时为 null
+    private final Supplier<ImportMetrics> metrics;
+    private final Supplier<CancellationToken> cancellation;
+    private final int maxAttempts;
+    private final Duration defaultRetryAfter;
+    // 在途的请求与定时等待，取消时逐个中止
+    private final Set<CompletableFuture<?>> pending = ConcurrentHashMap.newKeySet();
+
+    public AsyncApiClient(int threads, ObjectMapper objectMapper, TokenBucketRateLimiter rateLimiter,
+                          ResponseCache responseCache, Supplier<ImportMetrics> metrics,
+                          Supplier<CancellationToken> cancellation, int maxAttempts, Duration defaultRetryAfter) {
+        AtomicInteger counter = new AtomicInteger();
+        // 只负责 HttpClient 的回调与响应解码，线程数与在途请求数无关
+        this.executor = Executors.newFixedThreadPool(Math.max(1, threads), r -> {
+            Thread thread = new Thread(r, "import-async-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.httpClient = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_2)
+                .connectTimeout(CONNECT_TIMEOUT)
+                .followRedirects(HttpClient.Redirect.NORMAL)
+                .executor(executor)
+                .build();
+        this.objectMapper = objectMapper;
+        this.rateLimiter = rateLimiter;
+        this.responseCache = responseCache;
+        this.metrics = metrics;
+        this.cancellation = cancellation;
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.defaultRetryAfter = defaultRetryAfter;
+    }
+
+    /**
+     * 发出 GET 请求并解码为目标类型，失败时按指数退避重试。
+     */
+    public <T> CompletableFuture<ApiResponseDTO<T>> fetch(String url, HttpHeaders headers, JavaType type) {
+        return attempt(url, headers, type, 1);
+    }
+
+    /**
+     * 中止全部在途请求（JDK HttpClient 会关闭对应的流）并结束等待中的令牌与退避定时。
+     */
+    public void abort() {
+        pending.forEach(future -> future.cancel(true));
+    }
+
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private <T> CompletableFuture<ApiResponseDTO<T>> attempt(String url, HttpHeaders headers, JavaType type,
+                                                           int attempt) {
+        if (cancellation.get().isCancelled()) {
+            return CompletableFuture.completedFuture(null);
+        }
+        if (attempt > 1) {
+            metrics.get().recordRetry();
+        }
+        return acquirePermit()
+                .thenCompose(ignored -> this.<T>send(url, headers, type))
+                .<CompletableFuture<ApiResponseDTO<T>>>handle((response, error) -> {
+                    if (error == null) {
+                        return CompletableFuture.completedFuture(response);
+                    }
+                    if (cancellation.get().isCancelled()) {
+                        return CompletableFuture.completedFuture(null);
+                    }
+                    return retry(url, headers, type, attempt, unwrap(error));
+                })
+                .thenCompose(future -> future);
+    }
+
+    private <T> CompletableFuture<ApiResponseDTO<T>> retry(String url, HttpHeaders headers, JavaType type,
+                                                         int attempt, Throwable cause) {
+        long delayMs;
+        if (cause instanceof RateLimitedException rateLimited) {
+            // 429：全局退避，之后取令牌时自然会等待，无需额外延迟
+            log.warn("API请求过多(429)，全局暂停 {} 秒", rateLimited.wait.toSeconds());
+            metrics.get().recordRateLimited();
+            rateLimiter.backoff(rateLimited.wait);
+            delayMs = 0;
+        } else if (cause instanceof ClientErrorException) {
+            // 其他4xx（如404）重试也无意义
+            log.error("请求失败 {}: {}", url, cause.getMessage());
+            return CompletableFuture.completedFuture(null);
+        } else {
+            log.warn("请求失败 (第 {}/{} 次) {}: {}", attempt, maxAttempts, url, cause.getMessage());
+            delayMs = 1000L * (1L << (attempt - 1)); // 1, 2, 4秒...
+        }
+        if (attempt >= maxAttempts) {
+            log.error("请求 {} 重试{}次后失败", url, maxAttempts);
+            return CompletableFuture.completedFuture(null);
+        }
+        // 定时被取消时同样进入下一次尝试，由 attempt 检查取消状态
+        return delay(TimeUnit.MILLISECONDS.toNanos(delayMs))
+                .handle((ignored, error) -> this.<T>attempt(url, headers, type, attempt + 1))
+                .thenCompose(future -> future);
+    }
+
+    /**
+     * 从全局令牌桶取得令牌，桶空时按建议的等待时间挂一个定时任务后再试。
+     */
+    private CompletableFuture<Void> acquirePermit() {
+        long waitNanos = rateLimiter.tryAcquire();
+        if (waitNanos <= 0) {
+            return CompletableFuture.completedFuture(null);
+        }
+        if (cancellation.get().isCancelled()) {
+            return CompletableFuture.failedFuture(new CancellationException("导入已取消"));
+        }
+        return delay(waitNanos).thenCompose(ignored -> acquirePermit());
+    }
+
+    private CompletableFuture<Void> delay(long nanos) {
+        if (nanos <= 0) {
+            return CompletableFuture.completedFuture(null);
+        }
+        return track(CompletableFuture.runAsync(() -> { },
+                CompletableFuture.delayedExecutor(nanos, TimeUnit.NANOSECONDS, executor)));
+    }
+
+    private <F extends CompletableFuture<?>> F track(F future) {
+        pending.add(future);
+        future.whenComplete((ignored, error) -> pending.remove(future));
+        if (cancellation.get().isCancelled()) {
+            future.cancel(true); // abort 之后才登记的请求
+        }
+        return future;
+    }
+
+    private <T> CompletableFuture<ApiResponseDTO<T>> send(String url, HttpHeaders headers, JavaType type) {
+        if (cancellation.get().isCancelled()) {
+            return CompletableFuture.failedFuture(new CancellationException("导入已取消"));
+        }
+        HttpRequest.Builder builder = HttpRequest.newBuilder(URI.create(url))
+                .timeout(REQUEST_TIMEOUT)
+                .header(HttpHeaders.ACCEPT_ENCODING, "gzip")
+                .GET();
+        headers.forEach((name, values) -> values.forEach(value -> builder.header(name, value)));
+        log.debug("异步请求数据: {}", url);
+
+        long requestStart = System.nanoTime();
+        return track(httpClient.sendAsync(builder.build(), HttpResponse.BodyHandlers.ofByteArray()))
+                .whenComplete((response, error) -> metrics.get()
+                        .recordRequest(ImportMetrics.endpointOf(url), System.nanoTime() - requestStart))
+                .thenApply(response -> decode(url, response, type));
+    }
+
+    private <T> ApiResponseDTO<T> decode(String url, HttpResponse<byte[]> response, JavaType type) {
+        int status = response.statusCode();
+        if (status == 429) {
+            String retryAfter = response.headers().firstValue(HttpHeaders.RETRY_AFTER).orElse(null);
+            throw new RateLimitedException(TokenBucketRateLimiter.parseRetryAfter(retryAfter, defaultRetryAfter));
+        }
+        if (status >= 400 && status < 500) {
+            throw new ClientErrorException("HTTP " + status);
+        }
+
+        ApiResponseDTO<T> result = new ApiResponseDTO<>();
+        result.setEtag(response.headers().firstValue(HttpHeaders.ETAG).orElse(null));
+        result.setLastModified(response.headers().firstValue(HttpHeaders.LAST_MODIFIED).orElse(null));
+        if (status == 304) {
+            result.setNotModified(true);
+            return result;
+        }
+        if (status < 200 || status >= 300) {
+            throw new IllegalStateException("HTTP " + status);
+        }
+
+        try {
+            byte[] body = decompress(response);
+            result.setBody(objectMapper.readValue(body, type));
+            if (responseCache != null) {
+                responseCache.write(url, body);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("解码响应失败: " + url, e);
+        }
+        if (result.getBody() == null) {
+            throw new IllegalStateException("响应内容为空: " + url);
+        }
+        return result;
+    }
+
+    // JDK HttpClient 不会自动解压，按 Content-Encoding 处理
+    private static byte[] decompress(HttpResponse<byte[]> response) throws IOException {
+        boolean gzip = response.headers().firstValue("Content-Encoding")
+                .map(encoding -> encoding.equalsIgnoreCase("gzip"))
+                .orElse(false);
+        if (!gzip) {
+            return response.body();
+        }
+        try (InputStream in = new GZIPInputStream(new ByteArrayInputStream(response.body()))) {
+            return in.readAllBytes();
+        }
+    }
+
+    private static Throwable unwrap(Throwable error) {
+        while ((error instanceof CompletionException || error instanceof ExecutionException)
+                && error.getCause() != null) {
+            error = error.getCause();
+        }
+        return error;
+    }
+
+    private static class RateLimitedException extends RuntimeException {
+        private final Duration wait;
+
+        RateLimitedException(Duration wait) {
+            super("HTTP 429");
+            this.wait = wait;
+        }
+    }
+
+    private static class ClientErrorException extends RuntimeException {
+        ClientErrorException(String message) {
+            super(message);
+        }
+    }
+}
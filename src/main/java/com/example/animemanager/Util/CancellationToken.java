@@ -0,0 +1,62 @@
+package com.example.animemanager.Util;
+
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 一次导入的取消信号。取消时唤醒所有通过 {@link #sleep(long)} 等待的线程，
+ * 并执行注册的回调（例如中止进行中的 HTTP 请求）。
+ * 不使用 Thread.interrupt：H2 在线程被中断时会关闭数据库文件，正在写库的线程不能被中断。
+ */
+public class CancellationToken {
+
+    private final AtomicBoolean cancelled = new AtomicBoolean();
+    private final CountDownLatch signal = new CountDownLatch(1);
+    private final List<Runnable> callbacks = new CopyOnWriteArrayList<>();
+
+    public void cancel() {
+        if (!cancelled.compareAndSet(false, true)) {
+            return;
+        }
+        signal.countDown();
+        // 与 onCancel 竞争时以 remove 成功为准，保证每个回调只执行一次
+        for (Runnable callback : callbacks) {
+            if (callbacks.remove(callback)) {
+                callback.run();
+            }
+        }
+    }
+
+    public boolean isCancelled() {
+        return cancelled.get();
+    }
+
+    /**
+     * 注册取消时执行的回调，已经取消时立即执行。
+     */
+    public void onCancel(Runnable callback) {
+        callbacks.add(callback);
+        if (cancelled.get() && callbacks.remove(callback)) {
+            callback.run();
+        }
+    }
+
+    /**
+     * 可被取消唤醒的等待，取消时抛出 {@link CancellationException}。
+     */
+    public void sleep(long nanos) throws InterruptedException {
+        if (nanos > 0 ? signal.await(nanos, TimeUnit.NANOSECONDS) : isCancelled()) {
+            throw new CancellationException("导入已取消");
+        }
+    }
+
+    public void throwIfCancelled() {
+        if (isCancelled()) {
+            throw new CancellationException("导入已取消");
+        }
+    }
+}
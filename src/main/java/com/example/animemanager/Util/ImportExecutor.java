@@ -0,0 +1,152 @@
+package com.example.animemanager.Util;
+
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+import java.lang.reflect.Method;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 数据导入使用的执行器，支持两种模式：
+ * <ul>
+ *     <li>pool：固定大小的平台线程池，流水线每个阶段各有一个，条目内部的并发请求另用一个</li>
+ *     <li>virtual：每个任务一个虚拟线程（需要 JDK 21+，否则回退到 pool）</li>
+ * </ul>
+ * pool 模式下线程总数为各阶段工作线程数与 pool_size 之和，不随收藏规模或剧集页数增长；
+ * 阻塞的 HTTP 与 JDBC 调用还要先取得对应资源（远程主机 / 数据库）的许可，以此限制真正的并发度。
+ */
+@Slf4j
+public class ImportExecutor {
+
+    public enum Mode { POOL, VIRTUAL }
+
+    public static final String DATABASE_RESOURCE = "database";
+
+    @Getter
+    private final Mode mode;
+    private final ExecutorService requestExecutor;
+    private final Map<String, Semaphore> permits = new ConcurrentHashMap<>();
+    private final int permitsPerHost;
+    private final int databasePermits;
+
+    /**
+     * @param requestThreads pool 模式下执行条目内部并发请求的线程数
+     */
+    public ImportExecutor(Mode requestedMode, int requestThreads, int permitsPerHost, int databasePermits) {
+        this.permitsPerHost = Math.max(1, permitsPerHost);
+        this.databasePermits = Math.max(1, databasePermits);
+
+        ExecutorService virtual = requestedMode == Mode.VIRTUAL ? createVirtualExecutor() : null;
+        if (virtual != null) {
+            this.mode = Mode.VIRTUAL;
+            this.requestExecutor = virtual;
+        } else {
+            if (requestedMode == Mode.VIRTUAL) {
+                log.warn("当前JDK ({}) 不支持虚拟线程，回退到平台线程池", Runtime.version());
+            }
+            this.mode = Mode.POOL;
+            this.requestExecutor = createPlatformPool("request", requestThreads);
+        }
+        log.info("导入执行器模式: {}，{}每个主机并发上限 {}，数据库并发上限 {}", mode,
+                mode == Mode.POOL ? "请求线程 " + Math.max(1, requestThreads) + " 个，" : "",
+                this.permitsPerHost, this.databasePermits);
+    }
+
+    public static Mode parseMode(String value) {
+        try {
+            return Mode.valueOf(value.trim().toUpperCase(Locale.ROOT));
+        } catch (Exception e) {
+            log.warn("未知的执行器模式 [{}]，使用 pool", value);
+            return Mode.POOL;
+        }
+    }
+
+    /**
+     * 为流水线的一个阶段创建专用执行器，pool 模式下恰好 threads 个线程，由调用方在阶段结束后关闭。
+     * 各阶段的线程互不共用，一个阶段阻塞等待另一个阶段时不会占满对方的线程。
+     */
+    public ExecutorService newStageExecutor(String stage, int threads) {
+        if (mode == Mode.VIRTUAL) {
+            ExecutorService virtual = createVirtualExecutor();
+            if (virtual != null) {
+                return virtual;
+            }
+        }
+        return createPlatformPool(stage, threads);
+    }
+
+    /**
+     * 条目内部的并发请求（人员、角色、剧集分页）提交到这里。
+     * 这些任务只发 HTTP 请求、不再提交子任务，固定大小的线程池排队执行即可，不会互相等待。
+     */
+    public ExecutorService requestExecutor() {
+        return requestExecutor;
+    }
+
+    /**
+     * 持有指定远程主机的许可执行阻塞调用。
+     */
+    public <T> T callWithHostPermit(String host, Callable<T> task) throws Exception {
+        return callWithPermit(permits.computeIfAbsent(host, h -> new Semaphore(permitsPerHost, true)), task);
+    }
+
+    /**
+     * 持有数据库许可执行阻塞调用。
+     */
+    public <T> T callWithDatabasePermit(Callable<T> task) throws Exception {
+        return callWithPermit(permits.computeIfAbsent(DATABASE_RESOURCE, h -> new Semaphore(databasePermits, true)), task);
+    }
+
+    private <T> T callWithPermit(Semaphore semaphore, Callable<T> task) throws Exception {
+        semaphore.acquire();
+        try {
+            return task.call();
+        } finally {
+            semaphore.release();
+        }
+    }
+
+    // 请求线程池只执行 HTTP 请求，超时后可以直接中断
+    public void shutdown() {
+        requestExecutor.shutdown();
+        try {
+            if (!requestExecutor.awaitTermination(60, TimeUnit.SECONDS)) {
+                requestExecutor.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            requestExecutor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // 通过反射创建，保证在 JDK 17 上也能编译运行
+    private static ExecutorService createVirtualExecutor() {
+        try {
+            Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) factory.invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return null;
+        }
+    }
+
+    // 提交量由调用方限制（阶段工作线程数 / 每个条目的请求数），队列不会无限增长
+    private static ExecutorService createPlatformPool(String name, int threads) {
+        int size = Math.max(1, threads);
+        AtomicInteger counter = new AtomicInteger();
+        return new ThreadPoolExecutor(
+                size,
+                size,
+                60L, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(),
+                r -> {
+                    Thread thread = new Thread(r, "import-" + name + "-" + counter.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy()
+        );
+    }
+}
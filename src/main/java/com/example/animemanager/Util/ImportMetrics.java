@@ -0,0 +1,365 @@
+package com.example.animemanager.Util;
+
+import io.micrometer.core.instrument.*;
+import io.micrometer.core.instrument.distribution.ValueAtPercentile;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+import java.lang.management.ManagementFactory;
+import java.net.URI;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * 单次导入任务的运行指标，用于比较不同执行模式下的吞吐量。
+ * 各阶段耗时、请求延迟分布与错误计数同时注册到 Micrometer 的 {@link MeterRegistry}，
+ * 每次导入使用独立的注册表，界面上的实时摘要也从这里读取。
+ * Micrometer 的百分位只统计最近一个时间窗口（metrics_window_seconds），用于实时摘要；
+ * 导入结束时报告的百分位另由累计的 HdrHistogram 计算，覆盖整个导入过程。
+ */
+public class ImportMetrics {
+
+    // 请求端点分类，与 Bangumi API 的路径对应
+    public static final String ENDPOINT_SUBJECT = "subject";
+    public static final String ENDPOINT_PERSONS = "persons";
+    public static final String ENDPOINT_CHARACTERS = "characters";
+    public static final String ENDPOINT_EPISODES = "episodes";
+    public static final String ENDPOINT_COLLECTIONS = "collections";
+
+    private static final String[] ENDPOINTS = {
+            ENDPOINT_SUBJECT, ENDPOINT_PERSONS, ENDPOINT_CHARACTERS, ENDPOINT_EPISODES, ENDPOINT_COLLECTIONS};
+    private static final Map<String, String> ENDPOINT_NAMES = Map.of(
+            ENDPOINT_SUBJECT, "主条目", ENDPOINT_PERSONS, "人员", ENDPOINT_CHARACTERS, "角色",
+            ENDPOINT_EPISODES, "剧集", ENDPOINT_COLLECTIONS, "收藏");
+    private static final String[] ID_CACHE_ENTITIES = {"person", "character"};
+    private static final Map<String, String> ID_CACHE_NAMES = Map.of("person", "人员", "character", "角色");
+
+    private final MeterRegistry registry = new SimpleMeterRegistry();
+    private final Map<String, Timer> requestTimers = new ConcurrentHashMap<>();
+    private final Map<String, Histogram> requestHistograms = new ConcurrentHashMap<>(); // 微秒
+    private final Histogram subjectHistogram = newHistogram();
+    private final Timer subjectTimer;
+    private final Timer parseTimer;
+    private final Timer persistTimer;
+    private final Counter rateLimitedCounter;
+    private final Counter retryCounter;
+    private volatile Supplier<Integer> fetchedQueueDepth = () -> 0;
+    private volatile Supplier<Integer> parsedQueueDepth = () -> 0;
+    private volatile int planned;
+
+    private final String mode;
+    private final long startNanos = System.nanoTime();
+    private volatile long endNanos;
+
+    private final LongAdder succeeded = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder notModified = new LongAdder();
+    private final LongAdder skipped = new LongAdder();
+    private final LongAdder commits = new LongAdder();
+    private final LongAdder groupRetries = new LongAdder();
+    private final LongAdder subjectNanos = new LongAdder();
+    private final LongAdder hostWaitNanos = new LongAdder();
+    private final LongAdder databaseWaitNanos = new LongAdder();
+    private final LongAdder decodeBytes = new LongAdder();
+    private final LongAdder parseBytes = new LongAdder();
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicInteger peakInFlight = new AtomicInteger();
+    private final Map<String, ResolvedIdCache> idCaches = new ConcurrentHashMap<>();
+
+    public ImportMetrics(String mode) {
+        this.mode = mode;
+        for (String endpoint : ENDPOINTS) {
+            requestTimers.put(endpoint, latencyTimer("animemanager.import.request", "API请求耗时")
+                    .tag("endpoint", endpoint).register(registry));
+            requestHistograms.put(endpoint, newHistogram());
+        }
+        this.subjectTimer = latencyTimer("animemanager.import.subject", "单个条目从开始抓取到写库完成的耗时").register(registry);
+        this.parseTimer = latencyTimer("animemanager.import.parse", "解析单个条目的耗时").register(registry);
+        this.persistTimer = latencyTimer("animemanager.import.persist", "一次数据库事务的耗时").register(registry);
+        this.rateLimitedCounter = Counter.builder("animemanager.import.rate_limited")
+                .description("收到 429 的次数").register(registry);
+        this.retryCounter = Counter.builder("animemanager.import.retries")
+                .description("请求重试次数").register(registry);
+        FunctionCounter.builder("animemanager.import.subjects", succeeded, LongAdder::sum)
+                .tag("result", "success").register(registry);
+        FunctionCounter.builder("animemanager.import.subjects", failed, LongAdder::sum)
+                .tag("result", "failed").register(registry);
+        FunctionCounter.builder("animemanager.import.subjects", notModified, LongAdder::sum)
+                .tag("result", "not_modified").register(registry);
+        FunctionCounter.builder("animemanager.import.subjects", skipped, LongAdder::sum)
+                .tag("result", "fresh").register(registry);
+        Gauge.builder("animemanager.import.queue.depth", () -> fetchedQueueDepth.get())
+                .tag("queue", "fetched").register(registry);
+        Gauge.builder("animemanager.import.queue.depth", () -> parsedQueueDepth.get())
+                .tag("queue", "parsed").register(registry);
+        Gauge.builder("animemanager.import.throughput", this, ImportMetrics::subjectsPerMinute)
+                .description("每分钟完成的条目数").register(registry);
+        Gauge.builder("animemanager.import.in_flight", inFlight, AtomicInteger::get).register(registry);
+    }
+
+    private static Timer.Builder latencyTimer(String name, String description) {
+        return Timer.builder(name)
+                .description(description)
+                .publishPercentiles(0.5, 0.95, 0.99)
+                .publishPercentileHistogram()
+                .distributionStatisticExpiry(Duration.ofSeconds(ImportSettings.metricsWindowSeconds()));
+    }
+
+    // 3 位有效数字，范围随记录的值自动扩展
+    private static Histogram newHistogram() {
+        return new ConcurrentHistogram(3);
+    }
+
+    public MeterRegistry registry() {
+        return registry;
+    }
+
+    public void setPlanned(int planned) {
+        this.planned = planned;
+    }
+
+    public void bindQueueDepths(Supplier<Integer> fetched, Supplier<Integer> parsed) {
+        this.fetchedQueueDepth = fetched;
+        this.parsedQueueDepth = parsed;
+    }
+
+    /**
+     * 导出 ID 缓存的命中与未命中次数，entity 为 person / character。
+     */
+    public void bindIdCache(String entity, ResolvedIdCache cache) {
+        idCaches.put(entity, cache);
+        FunctionCounter.builder("animemanager.import.id_cache", cache, ResolvedIdCache::hitCount)
+                .tag("entity", entity).tag("result", "hit").register(registry);
+        FunctionCounter.builder("animemanager.import.id_cache", cache, ResolvedIdCache::missCount)
+                .tag("entity", entity).tag("result", "miss").register(registry);
+    }
+
+    // 按请求路径归类，用于分端点统计延迟
+    public static String endpointOf(String url) {
+        String path = URI.create(url).getPath();
+        if (path.endsWith("/persons")) return ENDPOINT_PERSONS;
+        if (path.endsWith("/characters")) return ENDPOINT_CHARACTERS;
+        if (path.endsWith("/episodes")) return ENDPOINT_EPISODES;
+        if (path.endsWith("/collections")) return ENDPOINT_COLLECTIONS;
+        return ENDPOINT_SUBJECT;
+    }
+
+    public void recordRequest(String endpoint, long nanos) {
+        String known = requestTimers.containsKey(endpoint) ? endpoint : ENDPOINT_SUBJECT;
+        requestTimers.get(known).record(nanos, TimeUnit.NANOSECONDS);
+        requestHistograms.get(known).recordValue(TimeUnit.NANOSECONDS.toMicros(nanos));
+    }
+
+    public void recordParse(long nanos) {
+        parseTimer.record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void recordPersist(long nanos) {
+        persistTimer.record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void recordRateLimited() {
+        rateLimitedCounter.increment();
+    }
+
+    public void recordRetry() {
+        retryCounter.increment();
+    }
+
+    public long subjectStarted() {
+        peakInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+        return System.nanoTime();
+    }
+
+    public void subjectFinished(long startedAt, boolean success) {
+        inFlight.decrementAndGet();
+        long elapsed = System.nanoTime() - startedAt;
+        subjectNanos.add(elapsed);
+        subjectTimer.record(elapsed, TimeUnit.NANOSECONDS);
+        subjectHistogram.recordValue(TimeUnit.NANOSECONDS.toMicros(elapsed));
+        if (success) {
+            succeeded.increment();
+        } else {
+            failed.increment();
+        }
+    }
+
+    public void recordNotModified() {
+        notModified.increment();
+    }
+
+    // 未到刷新周期、未发请求直接跳过的条目
+    public void recordSkipped(int count) {
+        skipped.add(count);
+    }
+
+    public void recordCommit() {
+        commits.increment();
+    }
+
+    public void recordGroupRetry() {
+        groupRetries.increment();
+    }
+
+    public void recordHostWait(long nanos) {
+        hostWaitNanos.add(nanos);
+    }
+
+    public void recordDatabaseWait(long nanos) {
+        databaseWaitNanos.add(nanos);
+    }
+
+    public void recordDecodeAllocation(long bytes) {
+        if (bytes > 0) {
+            decodeBytes.add(bytes);
+        }
+    }
+
+    public void recordParseAllocation(long bytes) {
+        if (bytes > 0) {
+            parseBytes.add(bytes);
+        }
+    }
+
+    /**
+     * 当前线程累计分配的堆内存字节数，JVM 不支持时返回 -1。
+     * 前后两次取值之差即为这段代码的分配量，用于比较不同解码方式的内存开销。
+     */
+    public static long threadAllocatedBytes() {
+        if (ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean threadBean
+                && threadBean.isThreadAllocatedMemorySupported() && threadBean.isThreadAllocatedMemoryEnabled()) {
+            return threadBean.getCurrentThreadAllocatedBytes();
+        }
+        return -1;
+    }
+
+    public void finish() {
+        endNanos = System.nanoTime();
+    }
+
+    public long completedCount() {
+        return succeeded.sum() + failed.sum();
+    }
+
+    public long failedCount() {
+        return failed.sum();
+    }
+
+    public long rateLimitedCount() {
+        return (long) rateLimitedCounter.count();
+    }
+
+    // 整个导入过程中单个条目耗时的百分位（毫秒），percentile 取 0 ~ 1
+    public double subjectLatencyMillis(double percentile) {
+        return percentileMillis(subjectHistogram, percentile);
+    }
+
+    // 计入百分位统计的条目数
+    public long subjectLatencyCount() {
+        return subjectHistogram.getTotalCount();
+    }
+
+    public double subjectsPerMinute() {
+        long elapsed = elapsedNanos();
+        return elapsed > 0 ? completedCount() * (double) TimeUnit.MINUTES.toNanos(1) / elapsed : 0.0;
+    }
+
+    public String summary() {
+        long completed = completedCount();
+        double avgMs = completed > 0 ? subjectNanos.sum() / 1e6 / completed : 0.0;
+        double decodeKb = completed > 0 ? decodeBytes.sum() / 1024.0 / completed : 0.0;
+        double parseKb = completed > 0 ? parseBytes.sum() / 1024.0 / completed : 0.0;
+        return String.format("模式=%s, 完成=%d (成功 %d / 失败 %d / 未变化 %d), 未到刷新周期跳过=%d, 用时=%.1fs, 吞吐=%.1f 条/分钟, "
+                        + "平均耗时=%.0fms, 峰值并发=%d, 主机许可等待=%.1fs, 数据库许可等待=%.1fs, "
+                        + "解码分配=%.0fKB/条, 解析分配=%.0fKB/条, 事务数=%d (整组回退 %d 次), ID缓存命中率=%s",
+                mode, completed, succeeded.sum(), failed.sum(), notModified.sum(), skipped.sum(), elapsedNanos() / 1e9, subjectsPerMinute(),
+                avgMs, peakInFlight.get(), hostWaitNanos.sum() / 1e9, databaseWaitNanos.sum() / 1e9,
+                decodeKb, parseKb, commits.sum(), groupRetries.sum(), idCacheSummary());
+    }
+
+    private String idCacheSummary() {
+        if (idCaches.isEmpty()) {
+            return "未启用";
+        }
+        StringBuilder builder = new StringBuilder();
+        for (String entity : ID_CACHE_ENTITIES) {
+            ResolvedIdCache cache = idCaches.get(entity);
+            if (cache != null && cache.hitCount() + cache.missCount() > 0) {
+                builder.append(builder.length() > 0 ? " / " : "")
+                        .append(String.format("%s %.0f%% (%d/%d)", ID_CACHE_NAMES.get(entity), cache.hitRate() * 100,
+                                cache.hitCount(), cache.hitCount() + cache.missCount()));
+            }
+        }
+        return builder.length() > 0 ? builder.toString() : "-";
+    }
+
+    /**
+     * 导入进行中显示在状态栏的简短摘要，请求延迟取最近一个时间窗口。
+     */
+    public String liveSummary() {
+        StringBuilder latency = new StringBuilder();
+        for (String endpoint : ENDPOINTS) {
+            Timer timer = requestTimers.get(endpoint);
+            if (timer.count() > 0) {
+                latency.append(latency.length() > 0 ? " / " : "")
+                        .append(ENDPOINT_NAMES.get(endpoint)).append(' ')
+                        .append(String.format("%.0fms", percentileMillis(timer, 0.95)));
+            }
+        }
+        return String.format("同步中 %d/%d · %.1f 条/分钟 · 请求p95 %s · 解析 %.0fms · 写库 %.0fms · 429×%d · 重试×%d · 队列 %d/%d",
+                completedCount(), planned, subjectsPerMinute(), latency.length() > 0 ? latency : "-",
+                parseTimer.mean(TimeUnit.MILLISECONDS), persistTimer.mean(TimeUnit.MILLISECONDS),
+                (long) rateLimitedCounter.count(), (long) retryCounter.count(),
+                fetchedQueueDepth.get(), parsedQueueDepth.get());
+    }
+
+    /**
+     * 整个导入过程中单个条目与各端点请求延迟的 p50 / p95 / p99，用于导入结束时的日志。
+     */
+    public String latencySummary() {
+        StringBuilder builder = new StringBuilder();
+        if (subjectHistogram.getTotalCount() > 0) {
+            builder.append(String.format("单个条目 p50=%.0fms p95=%.0fms p99=%.0fms",
+                    percentileMillis(subjectHistogram, 0.5), percentileMillis(subjectHistogram, 0.95),
+                    percentileMillis(subjectHistogram, 0.99)));
+        }
+        for (String endpoint : ENDPOINTS) {
+            Histogram histogram = requestHistograms.get(endpoint);
+            if (histogram.getTotalCount() == 0) {
+                continue;
+            }
+            builder.append(builder.length() > 0 ? ", " : "")
+                    .append(String.format("%s %d次 p50=%.0fms p95=%.0fms p99=%.0fms", ENDPOINT_NAMES.get(endpoint),
+                            histogram.getTotalCount(), percentileMillis(histogram, 0.5),
+                            percentileMillis(histogram, 0.95), percentileMillis(histogram, 0.99)));
+        }
+        builder.append(String.format("; 解析 平均%.1fms, 写库 %d次 平均%.0fms, 429 %d次, 重试 %d次",
+                parseTimer.mean(TimeUnit.MILLISECONDS), persistTimer.count(), persistTimer.mean(TimeUnit.MILLISECONDS),
+                (long) rateLimitedCounter.count(), (long) retryCounter.count()));
+        return builder.toString();
+    }
+
+    private static double percentileMillis(Histogram histogram, double percentile) {
+        return histogram.getValueAtPercentile(percentile * 100) / 1000.0;
+    }
+
+    private static double percentileMillis(Timer timer, double percentile) {
+        for (ValueAtPercentile value : timer.takeSnapshot().percentileValues()) {
+            if (value.percentile() == percentile) {
+                return value.value(TimeUnit.MILLISECONDS);
+            }
+        }
+        return 0.0;
+    }
+
+    private long elapsedNanos() {
+        long end = endNanos != 0 ? endNanos : System.nanoTime();
+        return end - startNanos;
+    }
+}
@@ -0,0 +1,268 @@
+package com.example.animemanager.Util;
+
+import java.util.Map;
+
+/**
+ * 数据导入相关配置，读取 config.json 中的 import 字段，未配置的项使用默认值。
+ * 每一项都可以通过 JVM 参数 -Danimemanager.import.&lt;key&gt;=&lt;value&gt; 覆盖，便于调试与压测。
+ */
+public final class ImportSettings {
+
+    private static final String CONFIG_FILE = "Data/config.json";
+    private static final String PROPERTY_PREFIX = "animemanager.import.";
+    private static final Map<String, Object> SETTINGS = JsonConfigUtil.readImportSettings(CONFIG_FILE);
+
+    private ImportSettings() {
+        throw new AssertionError("工具类，禁止实例化");
+    }
+
+    // Bangumi API 根地址，压测时指向本地替身服务
+    public static String apiHost() {
+        String host = getString("api_host", "https://api.bgm.tv/v0");
+        return host.endsWith("/") ? host.substring(0, host.length() - 1) : host;
+    }
+
+    // 令牌桶速率：每分钟允许的请求数（有令牌约60次/分钟，匿名约18次/分钟）
+    public static double requestsPerMinute(boolean hasToken) {
+        return hasToken
+                ? getDouble("token_requests_per_minute", 60.0)
+                : getDouble("anonymous_requests_per_minute", 18.0);
+    }
+
+    // 令牌桶容量：空闲后允许的瞬时突发请求数
+    public static int burstSize(boolean hasToken) {
+        return hasToken ? getInt("token_burst", 5) : getInt("anonymous_burst", 2);
+    }
+
+    // 流水线抓取阶段的工作线程数，即同时在请求中的条目数上限
+    public static int fetchWorkers() {
+        return getInt("fetch_workers", 10);
+    }
+
+    // 流水线解析阶段的工作线程数
+    public static int parseWorkers() {
+        return getInt("parse_workers", 2);
+    }
+
+    // 流水线持久化阶段的工作线程数，默认顺序写入
+    public static int persistWorkers() {
+        return getInt("persist_workers", 1);
+    }
+
+    // 阶段之间有界队列的容量
+    public static int queueCapacity() {
+        return getInt("queue_capacity", 20);
+    }
+
+    // 每个数据库事务最多写入的条目数
+    public static int persistGroupSize() {
+        return getInt("persist_group_size", 20);
+    }
+
+    // 凑批时等待后续条目的最长时间（毫秒）
+    public static long persistGroupWaitMs() {
+        return getLong("persist_group_wait_ms", 500);
+    }
+
+    // 执行器模式：pool（平台线程）或 virtual（虚拟线程，每任务一线程）
+    public static String executorMode() {
+        return getString("executor", "pool");
+    }
+
+    // 实时摘要中请求延迟百分位的统计窗口（秒），导入结束时的报告不受影响
+    public static int metricsWindowSeconds() {
+        return Math.max(1, getInt("metrics_window_seconds", 120));
+    }
+
+    // pool 模式下执行条目内部并发请求（人员、角色、剧集分页）的线程数，默认与同主机并发上限相同
+    public static int poolSize() {
+        return Math.max(1, getInt("pool_size", maxRequestsPerHost()));
+    }
+
+    // 导入引擎：pipeline 为每个在途请求占用一个线程的流水线，async 为非阻塞请求组合的异步引擎
+    public static String importEngine() {
+        return getString("import_engine", "pipeline");
+    }
+
+    // 异步引擎同时在途（抓取、解析与写库中）的最大条目数
+    public static int asyncMaxInFlight() {
+        return Math.max(1, getInt("async_max_in_flight", 64));
+    }
+
+    // 异步引擎处理回调与解码的线程数
+    public static int asyncThreads() {
+        return Math.max(1, getInt("async_threads", 4));
+    }
+
+    // HTTP 客户端：pooled 为连接池长连接并启用 gzip，simple 为 JDK HttpURLConnection
+    public static String httpClient() {
+        return getString("http_client", "pooled");
+    }
+
+    // 连接池中空闲连接的最长保留时间（秒）
+    public static long httpIdleSeconds() {
+        return Math.max(1, getLong("http_idle_seconds", 30));
+    }
+
+    // 同一远程主机的最大并发请求数
+    public static int maxRequestsPerHost() {
+        return getInt("max_requests_per_host", 4);
+    }
+
+    // 同时执行 JDBC 操作的最大条目数
+    public static int maxDatabaseConnections() {
+        return getInt("max_database_connections", 2);
+    }
+
+    // 响应解码方式：stream（从响应流直接绑定到 DTO）或 tree（先缓冲为字符串再构建 JsonNode，用于对比）
+    public static String decodeMode() {
+        return getString("decode_mode", "stream");
+    }
+
+    // 是否对已存在的条目发送条件请求（If-None-Match / If-Modified-Since）
+    public static boolean conditionalRequests() {
+        return getBoolean("conditional_requests", true);
+    }
+
+    // 是否把 API 原始响应写入磁盘缓存
+    public static boolean cacheEnabled() {
+        return getBoolean("cache_enabled", false);
+    }
+
+    // 缓存目录，默认与数据库放在一起
+    public static String cacheDirectory() {
+        return getString("cache_dir", System.getProperty("user.home") + "/AppData/Local/AnimeManager/cache");
+    }
+
+    public static long cacheMaxMegabytes() {
+        return getLong("cache_max_mb", 512);
+    }
+
+    // 缓存有效期，0 表示不按时间淘汰
+    public static long cacheTtlHours() {
+        return getLong("cache_ttl_hours", 24L * 30);
+    }
+
+    // 回放模式：所有响应都从缓存读取，不访问网络
+    public static boolean replay() {
+        return getBoolean("replay", false);
+    }
+
+    // 增量同步：只处理上次同步之后新增或更新的收藏
+    public static boolean incrementalSync() {
+        return getBoolean("incremental_sync", true);
+    }
+
+    // 剧集接口每页条数，超过一页的长篇番剧会分页并发获取
+    public static int episodePageSize() {
+        return Math.max(1, getInt("episode_page_size", 100));
+    }
+
+    // 剧集分块写入数据库的批大小
+    public static int episodeBatchSize() {
+        return Math.max(1, getInt("episode_batch_size", 200));
+    }
+
+    // 放送日期在此天数以内（或尚未放送）的条目视为近期番剧
+    public static int refreshRecentDays() {
+        return Math.max(0, getInt("refresh_recent_days", 180));
+    }
+
+    // 近期番剧的评分刷新周期（小时）
+    public static long refreshRecentTtlHours() {
+        return Math.max(0, getLong("refresh_recent_ttl_hours", 24));
+    }
+
+    // 完结较久的番剧的评分刷新周期（天）
+    public static long refreshSettledTtlDays() {
+        return Math.max(0, getLong("refresh_settled_ttl_days", 30));
+    }
+
+    // 放送中的已有条目刷新时补齐新剧集与新角色
+    public static boolean deltaSync() {
+        return getBoolean("delta_sync", true);
+    }
+
+    // 单次导入内缓存已确认存在的人员 / 角色 ID，跨条目共享，减少重复的存在性查询
+    public static boolean idCache() {
+        return getBoolean("id_cache", true);
+    }
+
+    // 离线数据包导入范围：collection 只导入用户收藏的条目，anime 导入数据包中的全部动画
+    public static String archiveFilter() {
+        return getString("archive_filter", "collection");
+    }
+
+    // 离线数据包每轮处理的条目数，每轮重新扫描一遍关联文件，条目越多占用内存越大
+    public static int archiveChunkSize() {
+        return Math.max(1, getInt("archive_chunk_size", 2000));
+    }
+
+    // 导入用户数据备份时每个事务合并的记录数
+    public static int userDataBatchSize() {
+        return Math.max(1, getInt("user_data_batch_size", 1000));
+    }
+
+    // 强制全量刷新：忽略同步进度与刷新周期，重新扫描收藏并刷新库中全部条目
+    public static boolean forceRefresh() {
+        return getBoolean("force_refresh", false);
+    }
+
+    public static String getString(String key, String defaultValue) {
+        Object value = raw(key);
+        return value != null ? value.toString() : defaultValue;
+    }
+
+    public static int getInt(String key, int defaultValue) {
+        Object value = raw(key);
+        if (value instanceof Number number) {
+            return number.intValue();
+        }
+        try {
+            return value != null ? Integer.parseInt(value.toString().trim()) : defaultValue;
+        } catch (NumberFormatException e) {
+            return defaultValue;
+        }
+    }
+
+    public static long getLong(String key, long defaultValue) {
+        Object value = raw(key);
+        if (value instanceof Number number) {
+            return number.longValue();
+        }
+        try {
+            return value != null ? Long.parseLong(value.toString().trim()) : defaultValue;
+        } catch (NumberFormatException e) {
+            return defaultValue;
+        }
+    }
+
+    public static double getDouble(String key, double defaultValue) {
+        Object value = raw(key);
+        if (value instanceof Number number) {
+            return number.doubleValue();
+        }
+        try {
+            return value != null ? Double.parseDouble(value.toString().trim()) : defaultValue;
+        } catch (NumberFormatException e) {
+            return defaultValue;
+        }
+    }
+
+    public static boolean getBoolean(String key, boolean defaultValue) {
+        Object value = raw(key);
+        if (value instanceof Boolean bool) {
+            return bool;
+        }
+        return value != null ? Boolean.parseBoolean(value.toString().trim()) : defaultValue;
+    }
+
+    // JVM 参数优先于配置文件
+    private static Object raw(String key) {
+        String property = System.getProperty(PROPERTY_PREFIX + key);
+        if (property != null) {
+            return property;
+        }
+        return SETTINGS.get(key);
+    }
+}
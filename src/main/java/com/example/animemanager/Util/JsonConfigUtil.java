@@ -45,6 +45,17 @@ public final class JsonConfigUtil {
         return Collections.unmodifiableMap((Map<String, Double>) weights);
     }
 
+    @SuppressWarnings("unchecked")
+    public static Map<String, Object> readImportSettings(String fileName) {
+        Map<String, Object> config = readConfig(fileName);
+        Object settings = config.get("import");
+        if (!(settings instanceof Map)) {
+            // 未配置时全部使用默认值
+            return Collections.emptyMap();
+        }
+        return Collections.unmodifiableMap((Map<String, Object>) settings);
+    }
+
     @SuppressWarnings("unckecked")
     public static String readUser(String fileName) {
         Map<String, Object> config = readConfig(fileName);
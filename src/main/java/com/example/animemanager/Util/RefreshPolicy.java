@@ -0,0 +1,70 @@
+package com.example.animemanager.Util;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+
+/**
+ * 按放送日期决定评分的刷新周期：正在放送或近期放送的番剧评分变化快，周期短；
+ * 完结较久的番剧评分基本稳定，周期长。距上次同步未超过周期的条目本次不发请求。
+ */
+public class RefreshPolicy {
+
+    private final int recentDays;
+    private final Duration recentTtl;
+    private final Duration settledTtl;
+
+    public RefreshPolicy(int recentDays, Duration recentTtl, Duration settledTtl) {
+        this.recentDays = recentDays;
+        this.recentTtl = recentTtl;
+        this.settledTtl = settledTtl;
+    }
+
+    public static RefreshPolicy fromSettings() {
+        return new RefreshPolicy(ImportSettings.refreshRecentDays(),
+                Duration.ofHours(ImportSettings.refreshRecentTtlHours()),
+                Duration.ofDays(ImportSettings.refreshSettledTtlDays()));
+    }
+
+    /**
+     * 从未同步过，或距上次同步已超过该条目的刷新周期时返回 true。
+     */
+    public boolean isStale(String airDate, LocalDateTime lastSyncedAt, LocalDateTime now) {
+        if (lastSyncedAt == null) {
+            return true;
+        }
+        return !lastSyncedAt.plus(ttlFor(airDate, now.toLocalDate())).isAfter(now);
+    }
+
+    public Duration ttlFor(String airDate, LocalDate today) {
+        // 日期未知时按完结番处理，避免大量无日期条目频繁请求
+        return isRecent(airDate, today) ? recentTtl : settledTtl;
+    }
+
+    /**
+     * 近期放送且本地剧集少于总集数（总集数未定时同样视为放送中）的条目需要补齐剧集与角色。
+     */
+    public boolean isAiring(String airDate, int totalEpisodes, int localEpisodes, LocalDate today) {
+        if (!isRecent(airDate, today)) {
+            return false;
+        }
+        return totalEpisodes <= 0 || localEpisodes < totalEpisodes;
+    }
+
+    private boolean isRecent(String airDate, LocalDate today) {
+        LocalDate aired = parseDate(airDate);
+        return aired != null && aired.isAfter(today.minusDays(recentDays));
+    }
+
+    private static LocalDate parseDate(String value) {
+        if (value == null || value.isEmpty()) {
+            return null;
+        }
+        try {
+            return LocalDate.parse(value);
+        } catch (DateTimeParseException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package com.example.animemanager.Util;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * 单次导入内共享的实体 ID 缓存，记录已确认存在于数据库中的人员或角色 ID。
+ * 同一位声优、同一家制作公司会出现在大量条目中，命中缓存的 ID 不再重复查询。
+ * 只有事务提交后才通过 {@link #confirm(Collection)} 记入缓存，回滚的写入不会被当作已存在。
+ * 共享同一 ID 的条目由实体锁串行写入，锁在提交（及记入缓存）之后才释放，
+ * 后写入的条目直接命中缓存，因此不需要合并并发的查询。
+ * 每次导入创建一个新实例，导入结束后丢弃。
+ */
+public class ResolvedIdCache {
+
+    private final Set<Long> known = ConcurrentHashMap.newKeySet();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    /**
+     * 返回 ids 中已存在于数据库的部分，未缓存的 ID 合并为一次 loader 查询。
+     * 每个不同的 ID 计一次命中或未命中；查询失败时异常直接抛出，缓存不变。
+     *
+     * @param loader 批量查询已存在的 ID，例如 {@code personRepository::findExistingIds}
+     */
+    public Set<Long> findExisting(Collection<Long> ids, Function<Collection<Long>, Collection<Long>> loader) {
+        Set<Long> existing = new HashSet<>();
+        List<Long> unknown = new ArrayList<>();
+        for (Long id : new LinkedHashSet<>(ids)) {
+            if (known.contains(id)) {
+                existing.add(id);
+            } else {
+                unknown.add(id);
+            }
+        }
+        hits.add(existing.size());
+        if (!unknown.isEmpty()) {
+            misses.add(unknown.size());
+            existing.addAll(loader.apply(unknown));
+        }
+        return existing;
+    }
+
+    /**
+     * 记录已提交到数据库的 ID。
+     */
+    public void confirm(Collection<Long> ids) {
+        known.addAll(ids);
+    }
+
+    public long hitCount() {
+        return hits.sum();
+    }
+
+    public long missCount() {
+        return misses.sum();
+    }
+
+    public double hitRate() {
+        long total = hits.sum() + misses.sum();
+        return total > 0 ? (double) hits.sum() / total : 0.0;
+    }
+}
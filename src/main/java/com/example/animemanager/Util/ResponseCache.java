@@ -0,0 +1,168 @@
+package com.example.animemanager.Util;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * API 原始响应的磁盘缓存，每个响应按 URL 的 SHA-256 存为一个 gzip 文件。
+ * 文件内容为第一行请求 URL，其后是原始响应体；读取时校验 URL，避免哈希冲突读到错误内容。
+ * 超过有效期或总大小超过上限时，按修改时间从旧到新淘汰；有效期为 0 时不按时间淘汰。
+ * 已入库的条目之后只刷新主条目，人员、角色等响应不会再被写入，按时间淘汰会让它们从缓存中消失，
+ * 需要用缓存完整重建数据库时应关闭有效期。
+ */
+@Slf4j
+public class ResponseCache {
+
+    private final Path directory;
+    private final long maxBytes;
+    private final Duration ttl;
+    private final AtomicLong approximateSize = new AtomicLong();
+
+    public ResponseCache(Path directory, long maxBytes, Duration ttl) throws IOException {
+        this.directory = directory;
+        this.maxBytes = Math.max(0, maxBytes);
+        this.ttl = ttl;
+        Files.createDirectories(directory);
+        evict();
+    }
+
+    /**
+     * 读取缓存的响应体，不存在或内容损坏时返回 null。回放时不检查有效期。
+     */
+    public byte[] read(String url) {
+        Path file = pathFor(url);
+        if (!Files.isRegularFile(file)) {
+            return null;
+        }
+        try (InputStream in = new BufferedInputStream(new GZIPInputStream(Files.newInputStream(file)))) {
+            String storedUrl = readLine(in);
+            if (!url.equals(storedUrl)) {
+                log.warn("缓存文件 {} 对应的URL不一致，忽略", file.getFileName());
+                return null;
+            }
+            return in.readAllBytes();
+        } catch (IOException e) {
+            log.warn("读取缓存失败 {}: {}", url, e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * 写入响应体。先写临时文件再移动，避免并发读到写了一半的文件。
+     */
+    public void write(String url, byte[] body) {
+        Path file = pathFor(url);
+        try {
+            Files.createDirectories(file.getParent());
+            Path temp = Files.createTempFile(file.getParent(), file.getFileName().toString(), ".tmp");
+            try (OutputStream out = new GZIPOutputStream(Files.newOutputStream(temp))) {
+                out.write(url.getBytes(StandardCharsets.UTF_8));
+                out.write('\n');
+                out.write(body);
+            }
+            long size = Files.size(temp);
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            if (approximateSize.addAndGet(size) > maxBytes) {
+                evict();
+            }
+        } catch (IOException e) {
+            // 缓存只是辅助，写入失败不影响导入
+            log.warn("写入缓存失败 {}: {}", url, e.getMessage());
+        }
+    }
+
+    /**
+     * 删除过期文件（有效期为 0 时跳过），再从最旧的开始删除，直到总大小不超过上限。
+     */
+    public synchronized void evict() {
+        List<Path> files = new ArrayList<>();
+        try (Stream<Path> walk = Files.walk(directory)) {
+            walk.filter(Files::isRegularFile).forEach(files::add);
+        } catch (IOException e) {
+            log.warn("扫描缓存目录失败: {}", e.getMessage());
+            return;
+        }
+
+        long expireBefore = ttl.isZero() || ttl.isNegative()
+                ? Long.MIN_VALUE : System.currentTimeMillis() - ttl.toMillis();
+        List<CachedFile> alive = new ArrayList<>();
+        long total = 0;
+        int removed = 0;
+        for (Path file : files) {
+            try {
+                BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+                long modified = attributes.lastModifiedTime().toMillis();
+                if (modified < expireBefore) {
+                    Files.deleteIfExists(file);
+                    removed++;
+                } else {
+                    alive.add(new CachedFile(file, modified, attributes.size()));
+                    total += attributes.size();
+                }
+            } catch (IOException e) {
+                log.debug("处理缓存文件失败 {}: {}", file, e.getMessage());
+            }
+        }
+
+        alive.sort(Comparator.comparingLong(CachedFile::modified));
+        for (CachedFile file : alive) {
+            if (total <= maxBytes) {
+                break;
+            }
+            try {
+                Files.deleteIfExists(file.path());
+                total -= file.size();
+                removed++;
+            } catch (IOException e) {
+                log.debug("删除缓存文件失败 {}: {}", file.path(), e.getMessage());
+            }
+        }
+
+        approximateSize.set(total);
+        if (removed > 0) {
+            log.info("响应缓存淘汰 {} 个文件，当前 {} KB", removed, total / 1024);
+        }
+    }
+
+    // 按哈希前两位分子目录，避免单个目录文件过多
+    private Path pathFor(String url) {
+        String hash = sha256(url);
+        return directory.resolve(hash.substring(0, 2)).resolve(hash + ".json.gz");
+    }
+
+    private static String sha256(String value) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(value.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String readLine(InputStream in) throws IOException {
+        ByteArrayOutputStream line = new ByteArrayOutputStream();
+        int b;
+        while ((b = in.read()) != -1 && b != '\n') {
+            line.write(b);
+        }
+        return line.toString(StandardCharsets.UTF_8);
+    }
+
+    private record CachedFile(Path path, long modified, long size) {
+    }
+}
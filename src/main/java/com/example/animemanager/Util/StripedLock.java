@@ -0,0 +1,80 @@
+package com.example.animemanager.Util;
+
+import java.util.Collection;
+import java.util.TreeSet;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 按实体 ID 分段加锁：ID 映射到固定数量的锁之一，
+ * 共享同一批人员 / 角色的条目互斥写入，互不相关的条目仍可并行。
+ * 一次性按分段序号从小到大加锁，多个线程同时锁多个 ID 也不会死锁。
+ */
+public class StripedLock {
+
+    private final ReentrantLock[] stripes;
+
+    public StripedLock(int stripeCount) {
+        this.stripes = new ReentrantLock[Math.max(1, stripeCount)];
+        for (int i = 0; i < stripes.length; i++) {
+            stripes[i] = new ReentrantLock();
+        }
+    }
+
+    /**
+     * 锁住所有 ID 所在的分段，返回的句柄关闭时释放。
+     */
+    public Handle lockAll(Collection<Long> ids) {
+        int[] indexes = stripesFor(ids);
+        int count = 0;
+        try {
+            for (int index : indexes) {
+                stripes[index].lock();
+                count++;
+            }
+        } catch (RuntimeException | Error e) {
+            unlock(indexes, count);
+            throw e;
+        }
+        return () -> unlock(indexes, indexes.length);
+    }
+
+    /**
+     * 与 {@link #lockAll} 相同，但有分段被其他线程持有时立即释放已获得的分段并返回 null，不等待。
+     * 已经持有锁的线程再用它加锁不会与其他线程形成等待环。
+     */
+    public Handle tryLockAll(Collection<Long> ids) {
+        int[] indexes = stripesFor(ids);
+        for (int count = 0; count < indexes.length; count++) {
+            if (!stripes[indexes[count]].tryLock()) {
+                unlock(indexes, count);
+                return null;
+            }
+        }
+        return () -> unlock(indexes, indexes.length);
+    }
+
+    // 去重后按分段序号从小到大排列
+    private int[] stripesFor(Collection<Long> ids) {
+        TreeSet<Integer> indexes = new TreeSet<>();
+        for (Long id : ids) {
+            indexes.add(stripeFor(id));
+        }
+        return indexes.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    private void unlock(int[] locked, int count) {
+        for (int i = count - 1; i >= 0; i--) {
+            stripes[locked[i]].unlock();
+        }
+    }
+
+    private int stripeFor(Long id) {
+        return Math.floorMod(Long.hashCode(id) * 0x9E3779B9, stripes.length);
+    }
+
+    @FunctionalInterface
+    public interface Handle extends AutoCloseable {
+        @Override
+        void close();
+    }
+}
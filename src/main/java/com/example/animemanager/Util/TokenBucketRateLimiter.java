@@ -0,0 +1,114 @@
+package com.example.animemanager.Util;
+
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 全局令牌桶限流器，所有 API 请求共享同一个实例。
+ * 令牌按固定速率补充，桶容量决定允许的突发请求数；
+ * 收到 429 时调用 {@link #backoff(Duration)} 让所有请求一起暂停。
+ */
+public class TokenBucketRateLimiter {
+
+    private final double permitsPerNano;
+    private final double capacity;
+
+    private double tokens;
+    private long lastRefillNanos;
+    private long pausedUntilNanos;
+
+    public TokenBucketRateLimiter(double permitsPerMinute, int burst) {
+        if (permitsPerMinute <= 0) {
+            throw new IllegalArgumentException("请求速率必须大于0: " + permitsPerMinute);
+        }
+        this.permitsPerNano = permitsPerMinute / TimeUnit.MINUTES.toNanos(1);
+        this.capacity = Math.max(1, burst);
+        this.tokens = this.capacity;
+        this.lastRefillNanos = System.nanoTime();
+        this.pausedUntilNanos = lastRefillNanos;
+    }
+
+    /**
+     * 阻塞直到取得一个令牌。
+     */
+    public void acquire() throws InterruptedException {
+        long waitNanos;
+        while ((waitNanos = tryAcquire()) > 0) {
+            TimeUnit.NANOSECONDS.sleep(waitNanos);
+        }
+    }
+
+    /**
+     * 阻塞直到取得一个令牌，导入被取消时立即抛出 {@link java.util.concurrent.CancellationException}。
+     */
+    public void acquire(CancellationToken cancellation) throws InterruptedException {
+        cancellation.throwIfCancelled();
+        long waitNanos;
+        while ((waitNanos = tryAcquire()) > 0) {
+            cancellation.sleep(waitNanos);
+        }
+    }
+
+    /**
+     * 尝试取得一个令牌：成功返回0，否则返回建议的等待纳秒数（此时不消耗令牌）。
+     */
+    public synchronized long tryAcquire() {
+        long now = System.nanoTime();
+        if (now - pausedUntilNanos < 0) {
+            return pausedUntilNanos - now;
+        }
+        refill(now);
+        if (tokens >= 1.0) {
+            tokens -= 1.0;
+            return 0;
+        }
+        return Math.max(1, (long) Math.ceil((1.0 - tokens) / permitsPerNano));
+    }
+
+    /**
+     * 全局退避：在指定时长内所有请求都不会发出，并清空已积攒的令牌，恢复后从零开始补充。
+     */
+    public synchronized void backoff(Duration duration) {
+        long now = System.nanoTime();
+        long until = now + duration.toNanos();
+        if (until - pausedUntilNanos > 0) {
+            pausedUntilNanos = until;
+        }
+        tokens = 0;
+        lastRefillNanos = pausedUntilNanos;
+    }
+
+    private void refill(long now) {
+        long elapsed = now - lastRefillNanos;
+        if (elapsed > 0) {
+            tokens = Math.min(capacity, tokens + elapsed * permitsPerNano);
+            lastRefillNanos = now;
+        }
+    }
+
+    /**
+     * 解析 Retry-After 响应头，支持秒数和 HTTP-date 两种格式，无法解析时返回 fallback。
+     */
+    public static Duration parseRetryAfter(String value, Duration fallback) {
+        if (value == null || value.isBlank()) {
+            return fallback;
+        }
+        String trimmed = value.trim();
+        try {
+            long seconds = Long.parseLong(trimmed);
+            return seconds > 0 ? Duration.ofSeconds(seconds) : fallback;
+        } catch (NumberFormatException ignored) {
+            // 不是秒数，继续尝试日期格式
+        }
+        try {
+            ZonedDateTime retryAt = ZonedDateTime.parse(trimmed, DateTimeFormatter.RFC_1123_DATE_TIME);
+            Duration duration = Duration.between(ZonedDateTime.now(retryAt.getZone()), retryAt);
+            return duration.isNegative() || duration.isZero() ? fallback : duration;
+        } catch (DateTimeParseException e) {
+            return fallback;
+        }
+    }
+}
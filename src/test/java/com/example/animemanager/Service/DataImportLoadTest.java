@@ -0,0 +1,166 @@
+package com.example.animemanager.Service;
+
+import com.example.animemanager.Main;
+import com.example.animemanager.Repository.SubjectRepository;
+import com.example.animemanager.Util.BangumiStubServer;
+import com.example.animemanager.Util.ImportMetrics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 端到端导入压测：对本地 {@link BangumiStubServer} 执行一次完整的收藏同步，
+ * 输出吞吐量（条/秒）、单个条目耗时 p99 与峰值堆内存，用于比较导入性能的变化。
+ * 百分位取自覆盖整个导入过程的累计直方图；统计窗口默认缩短为 1 秒，
+ * 使一次压测跨越多个窗口，若误用窗口内的统计会在断言中暴露。
+ * 默认构建不运行，使用 {@code mvn test -Pload-test} 执行；
+ * 规模与延迟可用 -Dload.subjects / -Dload.latency_ms / -Dload.rate_limit_ratio / -Dload.summary_length
+ * / -Dload.metrics_window_seconds 调整。
+ */
+@Tag("load")
+class DataImportLoadTest {
+
+    private static final String SETTING_PREFIX = "animemanager.import.";
+
+    private final Map<String, String> previousSettings = new HashMap<>();
+
+    @TempDir
+    Path databaseDirectory;
+
+    @ParameterizedTest(name = "import_engine={0}")
+    @ValueSource(strings = {"pipeline", "async"})
+    void importsWholeCollectionFromStub(String engine) throws Exception {
+        BangumiStubServer.Options options = new BangumiStubServer.Options();
+        options.setSubjects(Integer.getInteger("load.subjects", options.getSubjects()));
+        options.setLatencyMillis(Long.getLong("load.latency_ms", options.getLatencyMillis()));
+        options.setRateLimitRatio(Double.parseDouble(System.getProperty("load.rate_limit_ratio", "0.01")));
+        options.setSummaryLength(Integer.getInteger("load.summary_length", options.getSummaryLength()));
+        int windowSeconds = Integer.getInteger("load.metrics_window_seconds", 1);
+
+        try (BangumiStubServer stub = new BangumiStubServer(options)) {
+            setting("api_host", stub.baseUrl());
+            setting("import_engine", engine);
+            // 压测关注导入本身，限流放开到不成为瓶颈
+            setting("token_requests_per_minute", "1000000");
+            setting("anonymous_requests_per_minute", "1000000");
+            setting("token_burst", "1000");
+            setting("anonymous_burst", "1000");
+            setting("cache_enabled", "false");
+            setting("metrics_window_seconds", String.valueOf(windowSeconds));
+
+            SpringApplication application = new SpringApplication(Main.class);
+            application.setWebApplicationType(WebApplicationType.NONE);
+            try (ConfigurableApplicationContext context = application.run(
+                    "--spring.datasource.url=jdbc:h2:file:" + databaseDirectory.resolve("load-" + engine).toAbsolutePath())) {
+                DataImportService importService = context.getBean(DataImportService.class);
+                HeapSampler heap = new HeapSampler();
+
+                heap.start();
+                long startedAt = System.nanoTime();
+                ImportHandle handle = importService.startCollect(true);
+                handle.getCompletion().get(30, TimeUnit.MINUTES);
+                double elapsedSeconds = (System.nanoTime() - startedAt) / 1e9;
+                heap.stop();
+
+                ImportMetrics metrics = importService.getCurrentMetrics();
+                System.out.printf("[load] engine=%s subjects=%d latency=%dms 429=%d (%.1f%%) -> %.1f 条/秒, 耗时 %.1fs (统计窗口 %ds), "
+                                + "单个条目 p50=%.0fms p99=%.0fms (%d 个样本), 峰值堆内存=%.0fMB (起始 %.0fMB), 请求 %d 次 %s, 传输 %.1fMB%n",
+                        engine, options.getSubjects(), options.getLatencyMillis(), stub.rateLimitedCount(),
+                        options.getRateLimitRatio() * 100, metrics.subjectsPerMinute() / 60, elapsedSeconds, windowSeconds,
+                        metrics.subjectLatencyMillis(0.5), metrics.subjectLatencyMillis(0.99), metrics.subjectLatencyCount(),
+                        heap.peakBytes() / 1048576.0, heap.baselineBytes() / 1048576.0,
+                        stub.requestCount(), stub.requestCounts(), stub.bytesSent() / 1048576.0);
+                System.out.println("[load] " + metrics.summary());
+
+                assertEquals(0, metrics.failedCount(), "压测中不应有失败的条目");
+                assertEquals(options.getSubjects(), context.getBean(SubjectRepository.class).count());
+                // 关联表由 JDBC 批量写入，每个条目都应关联到人员与角色
+                JdbcTemplate jdbcTemplate = context.getBean(JdbcTemplate.class);
+                assertEquals(options.getSubjects(), jdbcTemplate.queryForObject(
+                        "SELECT COUNT(DISTINCT subject_id) FROM subject_person", Long.class));
+                assertEquals(options.getSubjects(), jdbcTemplate.queryForObject(
+                        "SELECT COUNT(DISTINCT subject_id) FROM subject_character", Long.class));
+                assertTrue(elapsedSeconds > windowSeconds, "压测应跨越多个统计窗口，请增大 load.subjects 或减小 load.metrics_window_seconds");
+                // p99 必须覆盖全部条目，而不只是最后一个窗口
+                assertEquals(metrics.completedCount(), metrics.subjectLatencyCount());
+            }
+        }
+    }
+
+    @AfterEach
+    void restoreSettings() {
+        previousSettings.forEach((key, value) -> {
+            if (value == null) {
+                System.clearProperty(SETTING_PREFIX + key);
+            } else {
+                System.setProperty(SETTING_PREFIX + key, value);
+            }
+        });
+        previousSettings.clear();
+    }
+
+    private void setting(String key, String value) {
+        previousSettings.putIfAbsent(key, System.getProperty(SETTING_PREFIX + key));
+        System.setProperty(SETTING_PREFIX + key, value);
+    }
+
+    /**
+     * 每 10ms 采样一次已用堆内存，记录导入期间的峰值。
+     */
+    private static final class HeapSampler {
+        private final MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        private final AtomicLong peak = new AtomicLong();
+        private long baseline;
+        private volatile boolean running;
+        private Thread thread;
+
+        void start() {
+            System.gc();
+            baseline = memory.getHeapMemoryUsage().getUsed();
+            peak.set(baseline);
+            running = true;
+            thread = new Thread(() -> {
+                while (running) {
+                    peak.accumulateAndGet(memory.getHeapMemoryUsage().getUsed(), Math::max);
+                    try {
+                        TimeUnit.MILLISECONDS.sleep(10);
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                }
+            }, "heap-sampler");
+            thread.setDaemon(true);
+            thread.start();
+        }
+
+        void stop() throws InterruptedException {
+            running = false;
+            thread.join();
+        }
+
+        long peakBytes() {
+            return peak.get();
+        }
+
+        long baselineBytes() {
+            return baseline;
+        }
+    }
+}
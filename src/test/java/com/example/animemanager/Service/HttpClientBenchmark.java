@@ -0,0 +1,81 @@
+package com.example.animemanager.Service;
+
+import com.example.animemanager.Main;
+import com.example.animemanager.Util.BangumiStubServer;
+import com.example.animemanager.Util.BenchmarkCounters;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 两种 HTTP 客户端（simple：HttpURLConnection；pooled：连接池长连接 + gzip）的请求开销对比。
+ * 对本地 {@link BangumiStubServer} 分页读取收藏列表，每次操作发出 collections / 100 个请求；
+ * latencyMillis 为替身每个请求的延迟，0 时只剩客户端自身的开销。
+ * {@link BenchmarkCounters} 另外输出每次操作的响应字节数（http.bytes）与新建连接数（http.connections）。
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 3)
+@Measurement(iterations = 5, time = 3)
+@Fork(1)
+public class HttpClientBenchmark {
+
+    @Param({"simple", "pooled"})
+    private String httpClient;
+
+    @Param({"500"})
+    private int collections;
+
+    @Param({"0", "20"})
+    private long latencyMillis;
+
+    private BangumiStubServer stub;
+    private ConfigurableApplicationContext context;
+    private DataImportService importService;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        BangumiStubServer.Options options = new BangumiStubServer.Options();
+        options.setSubjects(collections);
+        options.setLatencyMillis(latencyMillis);
+        options.setLatencyJitterMillis(0);
+        stub = new BangumiStubServer(options);
+
+        // 每组参数在独立的 JVM 中运行，直接设置系统属性即可
+        System.setProperty("animemanager.import.api_host", stub.baseUrl());
+        System.setProperty("animemanager.import.http_client", httpClient);
+        System.setProperty("animemanager.import.token_requests_per_minute", "100000000");
+        System.setProperty("animemanager.import.anonymous_requests_per_minute", "100000000");
+        System.setProperty("animemanager.import.token_burst", "100000");
+        System.setProperty("animemanager.import.anonymous_burst", "100000");
+
+        SpringApplication application = new SpringApplication(Main.class);
+        application.setWebApplicationType(WebApplicationType.NONE);
+        context = application.run("--spring.datasource.url=jdbc:h2:mem:http-bench;DB_CLOSE_DELAY=-1",
+                "--logging.level.com.example.animemanager=WARN", "--logging.level.com.example.animemanager.Service=WARN");
+        importService = context.getBean(DataImportService.class);
+        BenchmarkCounters.register("http.bytes", stub::bytesSent);
+        BenchmarkCounters.register("http.connections", stub::connectionCount);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        BenchmarkCounters.freeze();
+        context.close();
+        stub.close();
+    }
+
+    @Benchmark
+    public List<Long> fetchCollectionPages() {
+        List<Long> ids = importService.fetchCollectionSubjectIds("bench");
+        if (ids == null || ids.size() != collections) {
+            throw new IllegalStateException("收藏列表读取不完整: " + (ids == null ? null : ids.size()));
+        }
+        return ids;
+    }
+}
@@ -0,0 +1,142 @@
+package com.example.animemanager.Service;
+
+import com.example.animemanager.DTO.ParsedSubjectDTO;
+import com.example.animemanager.Entity.Character;
+import com.example.animemanager.Entity.*;
+import com.example.animemanager.Main;
+import com.example.animemanager.Util.BenchmarkCounters;
+import com.example.animemanager.Util.CountingDataSource;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 新条目写库的基准测试，重点是人员职业（person_careers）与角色声优（character_cast）的批量写入：
+ * 每次操作写入一个新条目，人员和角色都是新的，全部走合并 + 批量删除 + 批量插入的路径。
+ * castSize 为每个条目的人员数与角色数；{@link BenchmarkCounters} 输出每个条目的 JDBC 语句数（jdbc.statements）
+ * 与其中的批次数（jdbc.batches），语句数不应随 castSize 增长。
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 3)
+@Measurement(iterations = 5, time = 3)
+@Fork(1)
+public class PersistenceBenchmark {
+
+    private static final int EPISODES = 12;
+
+    @Param({"10", "50", "200"})
+    private int castSize;
+
+    private ConfigurableApplicationContext context;
+    private ImportPersistenceService persistenceService;
+    private Path databaseDirectory;
+    private final AtomicLong nextSubjectId = new AtomicLong(100_000);
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        databaseDirectory = Files.createTempDirectory("animemanager-bench");
+        SpringApplication application = new SpringApplication(Main.class);
+        application.setWebApplicationType(WebApplicationType.NONE);
+        CountingDataSource jdbc = new CountingDataSource();
+        application.addInitializers(ctx -> ctx.getBeanFactory().addBeanPostProcessor(jdbc));
+        context = application.run("--spring.datasource.url=jdbc:h2:file:" + databaseDirectory.resolve("bench").toAbsolutePath(),
+                "--logging.level.com.example.animemanager=WARN", "--logging.level.com.example.animemanager.Service=WARN");
+        persistenceService = context.getBean(ImportPersistenceService.class);
+        BenchmarkCounters.register("jdbc.statements", jdbc::statements);
+        BenchmarkCounters.register("jdbc.batches", jdbc::batches);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        BenchmarkCounters.freeze();
+        context.close();
+        try (var files = Files.walk(databaseDirectory)) {
+            files.sorted((a, b) -> b.compareTo(a)).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    @Benchmark
+    public void persistNewSubject() {
+        persistenceService.persistNewSubject(subject(nextSubjectId.getAndIncrement()));
+    }
+
+    private ParsedSubjectDTO subject(long subjectId) {
+        Rating rating = new Rating();
+        rating.setRank(1);
+        rating.setTotal(100);
+        rating.setScore(7.5);
+        rating.setInformation(0.0);
+        rating.setStory(0.0);
+        rating.setCharacter(0.0);
+        rating.setQuality(0.0);
+        rating.setAtmosphere(0.0);
+        rating.setLove(0.0);
+        rating.setTotalscore(0.0);
+
+        Subject subject = new Subject();
+        subject.setId(subjectId);
+        subject.setName("Subject " + subjectId);
+        subject.setNameCn("");
+        subject.setDate("2020-01-01");
+        subject.setPlatform("TV");
+        subject.setSummary("");
+        subject.setEps(EPISODES);
+        subject.setVolumes(0);
+        subject.setSeries(false);
+        subject.setLocked(false);
+        subject.setNsfw(false);
+        subject.setType(2);
+        subject.setRating(rating);
+
+        ParsedSubjectDTO parsed = new ParsedSubjectDTO();
+        parsed.setSubjectId(subjectId);
+        parsed.setSubject(subject);
+
+        for (int i = 0; i < castSize; i++) {
+            long personId = subjectId * castSize + i;
+            Person person = new Person();
+            person.setId(personId);
+            person.setName("Person " + personId);
+            person.setShortSummary("");
+            person.setType(1);
+            person.setLocked(false);
+            person.setCareers(new ArrayList<>(List.of("seiyu", "artist")));
+            parsed.getPersons().add(person);
+
+            long characterId = subjectId * castSize + i;
+            Character character = new Character();
+            character.setId(characterId);
+            character.setName("Character " + characterId);
+            character.setSummary("");
+            character.setRelation("配角");
+            character.setType(1);
+            character.setAttitude(0);
+            character.setCasts(new ArrayList<>(List.of(person)));
+            parsed.getCharacters().add(character);
+        }
+
+        for (int i = 0; i < EPISODES; i++) {
+            Episode episode = new Episode();
+            episode.setId(subjectId * 1_000 + i);
+            episode.setEp(i + 1);
+            episode.setName("Episode " + (i + 1));
+            episode.setNameCn("");
+            episode.setAirdate("");
+            episode.setDuration("");
+            episode.setDescription("");
+            episode.setAttitude(0);
+            parsed.getEpisodes().add(episode);
+        }
+        return parsed;
+    }
+}
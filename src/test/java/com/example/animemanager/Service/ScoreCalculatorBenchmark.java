@@ -0,0 +1,80 @@
+package com.example.animemanager.Service;
+
+import com.example.animemanager.Entity.Rating;
+import com.example.animemanager.Entity.Subject;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link ScoreCalculatorService} 的基准测试：每次操作对整个库（1k / 10k / 100k 个条目）计算一遍，
+ * 对应“计算均分”与批量重算总分的开销。配合 -prof gc（jmh 配置默认开启）查看每次操作的分配量与 GC 次数。
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ScoreCalculatorBenchmark {
+
+    @Param({"1000", "10000", "100000"})
+    private int subjects;
+
+    private final ScoreCalculatorService calculator = new ScoreCalculatorService();
+    private List<Subject> library;
+    private double[][] dimensions; // 每个条目的六维评分：信息量、剧情、角色、作画、氛围、喜爱
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Random random = new Random(42);
+        library = new ArrayList<>(subjects);
+        dimensions = new double[subjects][];
+        for (int i = 0; i < subjects; i++) {
+            double[] scores = new double[6];
+            for (int d = 0; d < scores.length; d++) {
+                // 集中在 5~9 分，偶尔出现极端值
+                scores[d] = Math.max(0, Math.min(10, 7 + random.nextGaussian() * 1.5));
+            }
+            dimensions[i] = scores;
+
+            Rating rating = new Rating();
+            rating.setScore(Math.round((4 + random.nextDouble() * 5) * 10) / 10.0);
+            rating.setTotalscore(calculator.calculateTotalScore(scores[0], scores[1], scores[2], scores[3], scores[4], scores[5]));
+            Subject subject = new Subject();
+            subject.setId(100_000L + i);
+            subject.setRating(rating);
+            library.add(subject);
+        }
+    }
+
+    @Benchmark
+    public double calculateTotalScore() {
+        double sum = 0;
+        for (double[] d : dimensions) {
+            sum += calculator.calculateTotalScore(d[0], d[1], d[2], d[3], d[4], d[5]);
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public void animeReport(Blackhole blackhole) {
+        for (double[] d : dimensions) {
+            blackhole.consume(calculator.AnimeReport(d[0], d[1], d[2], d[3], d[4], d[5]));
+        }
+    }
+
+    @Benchmark
+    public double calculateLocalLevel() {
+        return calculator.calculateLocallevel(library);
+    }
+
+    @Benchmark
+    public double calculateBangumiLevel() {
+        return calculator.calculateBangumiLevel(library);
+    }
+}
@@ -0,0 +1,356 @@
+package com.example.animemanager.Util;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import lombok.Data;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * 本地的 Bangumi API 替身，只实现导入用到的几个接口，返回按条目 ID 确定性生成的假数据。
+ * 可配置响应延迟、按比例注入 429 以及简介长度（控制响应体大小），用于在不访问真实 API 的情况下压测导入。
+ * 通过 {@code -Danimemanager.import.api_host=}{@link #baseUrl()} 让导入指向这里。
+ */
+@Slf4j
+public class BangumiStubServer implements AutoCloseable {
+
+    private static final Pattern COLLECTIONS = Pattern.compile("^/v0/users/[^/]+/collections$");
+    private static final Pattern SUBJECT = Pattern.compile("^/v0/subjects/(\\d+)(/persons|/characters)?$");
+    private static final String EPISODES = "/v0/episodes";
+    private static final long FIRST_SUBJECT_ID = 100_000;
+    private static final OffsetDateTime LATEST_UPDATE = OffsetDateTime.of(2024, 6, 1, 0, 0, 0, 0, ZoneOffset.ofHours(8));
+
+    /**
+     * 替身服务的行为参数，默认值对应一个中等规模的收藏。
+     */
+    @Data
+    public static class Options {
+        private int subjects = 200;                // 收藏中的条目数
+        private int personsPerSubject = 8;
+        private int charactersPerSubject = 8;
+        private int episodesPerSubject = 12;
+        // 人员与角色从有限的 ID 池中选取，不同条目会共用同一位声优或制作人员
+        private int personPool = 400;
+        private int characterPool = 1_000;
+        private int summaryLength = 200;           // 简介字符数，决定响应体大小
+        private long latencyMillis = 20;           // 每个请求的基础延迟
+        private long latencyJitterMillis = 10;     // 在基础延迟上随机增加 0~jitter 毫秒
+        private double rateLimitRatio = 0.0;       // 返回 429 的请求比例（0~1）
+        private int retryAfterSeconds = 1;
+        private boolean gzip = true;               // 客户端声明 Accept-Encoding: gzip 时压缩响应
+    }
+
+    static {
+        // JDK HttpServer 默认不关闭 Nagle，小响应会被延迟确认拖慢约 40ms，掩盖客户端本身的差异
+        if (System.getProperty("sun.net.httpserver.nodelay") == null) {
+            System.setProperty("sun.net.httpserver.nodelay", "true");
+        }
+    }
+
+    private final Options options;
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private final Map<String, LongAdder> requests = new ConcurrentHashMap<>();
+    private final LongAdder rateLimited = new LongAdder();
+    private final AtomicLong bytesSent = new AtomicLong();
+    // 按客户端地址（含端口）区分连接，用于观察客户端是否复用连接
+    private final Set<InetSocketAddress> connections = ConcurrentHashMap.newKeySet();
+
+    public BangumiStubServer(Options options) throws IOException {
+        this.options = options;
+        this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 128);
+        // 请求内用 sleep 模拟延迟，每个连接需要独立的线程
+        this.executor = Executors.newCachedThreadPool(r -> {
+            Thread thread = new Thread(r, "bangumi-stub");
+            thread.setDaemon(true);
+            return thread;
+        });
+        server.setExecutor(executor);
+        server.createContext("/", this::handle);
+        server.start();
+        log.info("Bangumi API 替身已启动: {}", baseUrl());
+    }
+
+    public String baseUrl() {
+        return "http://" + server.getAddress().getHostString() + ":" + server.getAddress().getPort() + "/v0";
+    }
+
+    public List<Long> subjectIds() {
+        List<Long> ids = new ArrayList<>(options.getSubjects());
+        for (int i = 0; i < options.getSubjects(); i++) {
+            ids.add(FIRST_SUBJECT_ID + i);
+        }
+        return ids;
+    }
+
+    public long requestCount() {
+        return requests.values().stream().mapToLong(LongAdder::sum).sum();
+    }
+
+    public Map<String, Long> requestCounts() {
+        Map<String, Long> counts = new TreeMap<>();
+        requests.forEach((endpoint, count) -> counts.put(endpoint, count.sum()));
+        return counts;
+    }
+
+    public long rateLimitedCount() {
+        return rateLimited.sum();
+    }
+
+    public long bytesSent() {
+        return bytesSent.get();
+    }
+
+    public long connectionCount() {
+        return connections.size();
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            connections.add(exchange.getRemoteAddress());
+            URI uri = exchange.getRequestURI();
+            Map<String, String> query = parseQuery(uri.getRawQuery());
+            sleep(options.getLatencyMillis() + (options.getLatencyJitterMillis() > 0
+                    ? ThreadLocalRandom.current().nextLong(options.getLatencyJitterMillis() + 1) : 0));
+
+            if (options.getRateLimitRatio() > 0 && ThreadLocalRandom.current().nextDouble() < options.getRateLimitRatio()) {
+                rateLimited.increment();
+                exchange.getResponseHeaders().set("Retry-After", String.valueOf(options.getRetryAfterSeconds()));
+                exchange.sendResponseHeaders(429, -1);
+                return;
+            }
+
+            String path = uri.getPath();
+            Object body = null;
+            String endpoint = "unknown";
+            Matcher subject = SUBJECT.matcher(path);
+            if (COLLECTIONS.matcher(path).matches()) {
+                endpoint = "collections";
+                body = collections(intParam(query, "limit", 30), intParam(query, "offset", 0));
+            } else if (path.equals(EPISODES)) {
+                endpoint = "episodes";
+                long subjectId = Long.parseLong(query.getOrDefault("subject_id", "0"));
+                body = known(subjectId) ? episodes(subjectId, intParam(query, "limit", 100), intParam(query, "offset", 0)) : null;
+            } else if (subject.matches()) {
+                long subjectId = Long.parseLong(subject.group(1));
+                String part = subject.group(2);
+                endpoint = part == null ? "subject" : part.substring(1);
+                if (known(subjectId)) {
+                    body = part == null ? subject(subjectId)
+                            : part.equals("/persons") ? persons(subjectId) : characters(subjectId);
+                }
+            }
+            requests.computeIfAbsent(endpoint, key -> new LongAdder()).increment();
+
+            if (body == null) {
+                exchange.sendResponseHeaders(404, -1);
+                return;
+            }
+            byte[] payload = objectMapper.writeValueAsBytes(body);
+            String acceptEncoding = exchange.getRequestHeaders().getFirst("Accept-Encoding");
+            if (options.isGzip() && acceptEncoding != null && acceptEncoding.contains("gzip")) {
+                ByteArrayOutputStream compressed = new ByteArrayOutputStream(payload.length / 4 + 64);
+                try (GZIPOutputStream gzip = new GZIPOutputStream(compressed)) {
+                    gzip.write(payload);
+                }
+                payload = compressed.toByteArray();
+                exchange.getResponseHeaders().set("Content-Encoding", "gzip");
+            }
+            exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+            exchange.sendResponseHeaders(200, payload.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(payload);
+            }
+            bytesSent.addAndGet(payload.length);
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private boolean known(long subjectId) {
+        return subjectId >= FIRST_SUBJECT_ID && subjectId < FIRST_SUBJECT_ID + options.getSubjects();
+    }
+
+    private ObjectNode collections(int limit, int offset) {
+        ArrayNode data = objectMapper.createArrayNode();
+        List<Long> ids = subjectIds();
+        for (int i = offset; i < Math.min(ids.size(), offset + limit); i++) {
+            // 收藏按更新时间倒序返回
+            data.addObject()
+                    .put("subject_id", ids.get(i))
+                    .put("subject_type", 2)
+                    .put("updated_at", LATEST_UPDATE.minusMinutes(i).format(DateTimeFormatter.ISO_OFFSET_DATE_TIME));
+        }
+        return page(data, ids.size(), limit, offset);
+    }
+
+    private ObjectNode subject(long subjectId) {
+        Random random = new Random(subjectId);
+        ObjectNode subject = objectMapper.createObjectNode()
+                .put("id", subjectId)
+                .put("type", 2)
+                .put("name", "Subject " + subjectId)
+                .put("name_cn", "条目 " + subjectId)
+                .put("date", String.format("20%02d-%02d-01", 10 + random.nextInt(14), 1 + random.nextInt(12)))
+                .put("platform", "TV")
+                .put("summary", text(random, options.getSummaryLength()))
+                .put("eps", options.getEpisodesPerSubject())
+                .put("volumes", 0)
+                .put("series", false)
+                .put("locked", false)
+                .put("nsfw", false);
+        subject.set("images", images("pic/cover", subjectId));
+        subject.putObject("rating")
+                .put("rank", 1 + random.nextInt(5_000))
+                .put("total", random.nextInt(20_000))
+                .put("score", Math.round((5 + random.nextDouble() * 4) * 10) / 10.0);
+        ArrayNode infobox = subject.putArray("infobox");
+        infobox.addObject().put("key", "中文名").put("value", "条目 " + subjectId);
+        ArrayNode aliases = infobox.addObject().put("key", "别名").putArray("value");
+        aliases.addObject().put("v", "Alias " + subjectId);
+        infobox.addObject().put("key", "话数").put("value", String.valueOf(options.getEpisodesPerSubject()));
+        return subject;
+    }
+
+    private ArrayNode persons(long subjectId) {
+        Random random = new Random(subjectId * 31);
+        ArrayNode persons = objectMapper.createArrayNode();
+        for (long personId : pick(random, options.getPersonsPerSubject(), options.getPersonPool())) {
+            persons.add(person(personId, random).put("relation", "原画"));
+        }
+        return persons;
+    }
+
+    private ArrayNode characters(long subjectId) {
+        Random random = new Random(subjectId * 37);
+        ArrayNode characters = objectMapper.createArrayNode();
+        for (long characterId : pick(random, options.getCharactersPerSubject(), options.getCharacterPool())) {
+            ObjectNode character = characters.addObject()
+                    .put("id", characterId)
+                    .put("name", "Character " + characterId)
+                    .put("summary", text(random, options.getSummaryLength() / 4))
+                    .put("relation", random.nextInt(4) == 0 ? "主角" : "配角")
+                    .put("type", 1);
+            character.set("images", images("pic/crt", characterId));
+            character.putArray("actors").add(person(characterId % options.getPersonPool() + 1, random));
+        }
+        return characters;
+    }
+
+    private ObjectNode episodes(long subjectId, int limit, int offset) {
+        ArrayNode data = objectMapper.createArrayNode();
+        int total = options.getEpisodesPerSubject();
+        for (int i = offset; i < Math.min(total, offset + limit); i++) {
+            data.addObject()
+                    .put("id", subjectId * 1_000 + i)
+                    .put("ep", i + 1)
+                    .put("name", "Episode " + (i + 1))
+                    .put("name_cn", "第" + (i + 1) + "话")
+                    .put("airdate", "2020-01-01")
+                    .put("duration", "00:24:00")
+                    .put("desc", "");
+        }
+        return page(data, total, limit, offset);
+    }
+
+    private ObjectNode person(long personId, Random random) {
+        ObjectNode person = objectMapper.createObjectNode()
+                .put("id", personId)
+                .put("name", "Person " + personId)
+                .put("short_summary", text(random, options.getSummaryLength() / 4))
+                .put("type", 1)
+                .put("locked", false);
+        person.set("images", images("pic/crt", personId));
+        person.putArray("career").add("seiyu");
+        return person;
+    }
+
+    private ObjectNode images(String prefix, long id) {
+        String base = "https://lain.bgm.tv/" + prefix + "/" + id + ".jpg";
+        return objectMapper.createObjectNode()
+                .put("small", base).put("grid", base).put("large", base).put("medium", base).put("common", base);
+    }
+
+    private ObjectNode page(ArrayNode data, int total, int limit, int offset) {
+        ObjectNode page = objectMapper.createObjectNode()
+                .put("total", total)
+                .put("limit", limit)
+                .put("offset", offset);
+        page.set("data", data);
+        return page;
+    }
+
+    // 从 1..pool 中不重复地选取 count 个 ID
+    private static Collection<Long> pick(Random random, int count, int pool) {
+        Set<Long> ids = new LinkedHashSet<>();
+        while (ids.size() < Math.min(count, pool)) {
+            ids.add(1L + random.nextInt(pool));
+        }
+        return ids;
+    }
+
+    private static String text(Random random, int length) {
+        StringBuilder builder = new StringBuilder(length);
+        for (int i = 0; i < length; i++) {
+            builder.append((char) ('一' + random.nextInt(2_000)));
+        }
+        return builder.toString();
+    }
+
+    private static Map<String, String> parseQuery(String query) {
+        Map<String, String> params = new HashMap<>();
+        if (query != null) {
+            for (String pair : query.split("&")) {
+                int equals = pair.indexOf('=');
+                if (equals > 0) {
+                    params.put(pair.substring(0, equals), pair.substring(equals + 1));
+                }
+            }
+        }
+        return params;
+    }
+
+    private static int intParam(Map<String, String> query, String name, int defaultValue) {
+        String value = query.get(name);
+        return value != null ? Integer.parseInt(value) : defaultValue;
+    }
+
+    private static void sleep(long millis) {
+        try {
+            TimeUnit.MILLISECONDS.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
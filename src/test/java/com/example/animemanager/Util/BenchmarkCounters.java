@@ -0,0 +1,76 @@
+package com.example.animemanager.Util;
+
+import org.openjdk.jmh.infra.BenchmarkParams;
+import org.openjdk.jmh.infra.IterationParams;
+import org.openjdk.jmh.profile.InternalProfiler;
+import org.openjdk.jmh.results.AggregationPolicy;
+import org.openjdk.jmh.results.IterationResult;
+import org.openjdk.jmh.results.Result;
+import org.openjdk.jmh.results.ScalarResult;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.LongSupplier;
+
+/**
+ * JMH 分析器：把基准测试登记的累计计数器换算成每次操作的平均值（与 -prof gc 的 alloc.rate.norm 相同的口径）。
+ * {@code @AuxCounters(EVENTS)} 在各次迭代之间求和，无法直接得到每次操作的数值，因此由这里按迭代的操作数归一化。
+ * 基准测试在 Trial 级别的 @Setup 中 {@link #register} 计数器，@TearDown 中 {@link #freeze}；
+ * 使用 {@code -prof com.example.animemanager.Util.BenchmarkCounters} 启用，jmh 配置默认已附带。
+ */
+public class BenchmarkCounters implements InternalProfiler {
+
+    private static final Map<String, LongSupplier> COUNTERS = new ConcurrentSkipListMap<>();
+
+    private Map<String, Long> before = Map.of();
+
+    public static void register(String name, LongSupplier counter) {
+        COUNTERS.put(name, counter);
+    }
+
+    /**
+     * 固定各计数器的当前值。Trial 的 @TearDown 在最后一次迭代的统计之前执行，
+     * 此后关闭上下文产生的计数不应计入该迭代。
+     */
+    public static void freeze() {
+        COUNTERS.replaceAll((name, counter) -> {
+            long value = counter.getAsLong();
+            return () -> value;
+        });
+    }
+
+    @Override
+    public String getDescription() {
+        return "基准测试登记的计数器，按每次操作平均";
+    }
+
+    @Override
+    public void beforeIteration(BenchmarkParams benchmarkParams, IterationParams iterationParams) {
+        before = snapshot();
+    }
+
+    @Override
+    public Collection<? extends Result> afterIteration(BenchmarkParams benchmarkParams, IterationParams iterationParams,
+                                                       IterationResult result) {
+        long ops = result.getMetadata().getAllOps();
+        List<Result> results = new ArrayList<>();
+        // Trial 的 @Setup 在第一次迭代开始后才执行，迭代开始时尚未登记的计数器本次不报告
+        snapshot().forEach((name, value) -> {
+            Long start = before.get(name);
+            if (start != null && ops > 0) {
+                results.add(new ScalarResult(name, (double) (value - start) / ops, "#/op", AggregationPolicy.AVG));
+            }
+        });
+        return results;
+    }
+
+    private static Map<String, Long> snapshot() {
+        Map<String, Long> values = new TreeMap<>();
+        COUNTERS.forEach((name, counter) -> values.put(name, counter.getAsLong()));
+        return values;
+    }
+}
@@ -0,0 +1,66 @@
+package com.example.animemanager.Util;
+
+import org.springframework.beans.factory.config.BeanPostProcessor;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.Statement;
+import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 统计经过数据源的 JDBC 调用：每次 execute / executeBatch 计为一条语句（一次往返数据库），
+ * 其中 executeBatch 另计为一个批次。Hibernate 与 JdbcTemplate 的写入都会被统计。
+ * 作为 {@link BeanPostProcessor} 注册到 Spring 上下文时包装容器中的 DataSource。
+ */
+public class CountingDataSource implements BeanPostProcessor {
+
+    private static final Set<String> EXECUTE = Set.of("execute", "executeQuery", "executeUpdate", "executeLargeUpdate");
+    private static final Set<String> EXECUTE_BATCH = Set.of("executeBatch", "executeLargeBatch");
+
+    private final LongAdder statements = new LongAdder();
+    private final LongAdder batches = new LongAdder();
+
+    public long statements() {
+        return statements.sum();
+    }
+
+    public long batches() {
+        return batches.sum();
+    }
+
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) {
+        return bean instanceof DataSource dataSource ? wrap(dataSource, DataSource.class) : bean;
+    }
+
+    private <T> T wrap(T target, Class<?> type) {
+        InvocationHandler handler = (proxy, method, args) -> {
+            String name = method.getName();
+            if (EXECUTE.contains(name)) {
+                statements.increment();
+            } else if (EXECUTE_BATCH.contains(name)) {
+                statements.increment();
+                batches.increment();
+            }
+            Object value;
+            try {
+                value = method.invoke(target, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+            // 连接与语句继续包装，才能统计到它们上面的执行
+            Class<?> returnType = method.getReturnType();
+            if (value != null && (returnType == Connection.class || Statement.class.isAssignableFrom(returnType))) {
+                return wrap(value, returnType);
+            }
+            return value;
+        };
+        @SuppressWarnings("unchecked")
+        T proxy = (T) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{type}, handler);
+        return proxy;
+    }
+}
@@ -0,0 +1,90 @@
+package com.example.animemanager.Util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * {@link ResolvedIdCache} 的命中 / 未命中计数与查询失败时的行为。
+ */
+class ResolvedIdCacheTest {
+
+    private final List<Collection<Long>> queries = new ArrayList<>();
+
+    // 模拟数据库：只有偶数 ID 存在，并记录每次查询的 ID
+    private final Function<Collection<Long>, Collection<Long>> evenIds = ids -> {
+        queries.add(List.copyOf(ids));
+        return ids.stream().filter(id -> id % 2 == 0).toList();
+    };
+
+    @Test
+    void uncachedIdsAreQueriedOnceAndCountedAsMisses() {
+        ResolvedIdCache cache = new ResolvedIdCache();
+
+        Set<Long> existing = cache.findExisting(List.of(1L, 2L, 3L, 4L, 2L), evenIds);
+
+        assertEquals(Set.of(2L, 4L), existing);
+        assertEquals(List.of(List.of(1L, 2L, 3L, 4L)), queries, "重复的 ID 只查询一次");
+        assertEquals(0, cache.hitCount());
+        assertEquals(4, cache.missCount());
+    }
+
+    @Test
+    void onlyConfirmedIdsAreServedFromTheCache() {
+        ResolvedIdCache cache = new ResolvedIdCache();
+        cache.findExisting(List.of(2L, 4L), evenIds);
+        // 查询到的 ID 在提交前不记入缓存
+        cache.findExisting(List.of(2L), evenIds);
+        assertEquals(2, queries.size());
+
+        cache.confirm(List.of(2L, 4L, 5L));
+        Set<Long> existing = cache.findExisting(List.of(2L, 4L, 5L, 6L), evenIds);
+
+        assertEquals(Set.of(2L, 4L, 5L, 6L), existing);
+        assertEquals(List.of(6L), queries.get(queries.size() - 1), "已确认的 ID 不再查询");
+        assertEquals(3, cache.hitCount());
+        assertEquals(4, cache.missCount());
+        assertEquals(3.0 / 7, cache.hitRate(), 1e-9);
+    }
+
+    @Test
+    void allCachedLookupDoesNotQuery() {
+        ResolvedIdCache cache = new ResolvedIdCache();
+        cache.confirm(List.of(1L, 3L));
+
+        assertEquals(Set.of(1L, 3L), cache.findExisting(List.of(3L, 1L), evenIds));
+        assertTrue(queries.isEmpty());
+        assertEquals(2, cache.hitCount());
+        assertEquals(0, cache.missCount());
+    }
+
+    @Test
+    void failedQueryPropagatesAndLeavesCacheUnchanged() {
+        ResolvedIdCache cache = new ResolvedIdCache();
+        cache.confirm(List.of(2L));
+        IllegalStateException failure = new IllegalStateException("数据库不可用");
+
+        IllegalStateException thrown = assertThrows(IllegalStateException.class,
+                () -> cache.findExisting(List.of(2L, 8L), ids -> {
+                    throw failure;
+                }));
+
+        assertSame(failure, thrown);
+        assertEquals(1, cache.hitCount());
+        assertEquals(1, cache.missCount(), "失败的查询同样计为未命中");
+        // 失败的 ID 没有被缓存，下次重新查询
+        assertEquals(Set.of(2L, 8L), cache.findExisting(List.of(2L, 8L), evenIds));
+        assertEquals(List.of(List.of(8L)), queries);
+    }
+
+    @Test
+    void emptyCacheHasZeroHitRate() {
+        assertEquals(0.0, new ResolvedIdCache().hitRate());
+    }
+}
@@ -0,0 +1,117 @@
+package com.example.animemanager.Util;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * {@link StripedLock} 的互斥、非阻塞加锁与加锁顺序（无死锁）。
+ */
+class StripedLockTest {
+
+    private static final Duration TIMEOUT = Duration.ofSeconds(30);
+
+    @Test
+    void lockAllBlocksOtherThreadsOnSharedIds() throws Exception {
+        StripedLock locks = new StripedLock(1024);
+        ExecutorService other = Executors.newSingleThreadExecutor();
+        try {
+            Future<Boolean> blocked;
+            try (StripedLock.Handle ignored = locks.lockAll(List.of(1L, 2L, 3L))) {
+                CountDownLatch started = new CountDownLatch(1);
+                blocked = other.submit(() -> {
+                    started.countDown();
+                    try (StripedLock.Handle handle = locks.lockAll(List.of(3L, 4L))) {
+                        return true;
+                    }
+                });
+                started.await();
+                assertThrows(TimeoutException.class, () -> blocked.get(200, TimeUnit.MILLISECONDS),
+                        "共享 ID 的线程应等待锁释放");
+            }
+            assertTrue(blocked.get(TIMEOUT.toSeconds(), TimeUnit.SECONDS));
+        } finally {
+            other.shutdownNow();
+        }
+    }
+
+    @Test
+    void tryLockAllGivesUpWithoutHoldingPartialStripes() throws Exception {
+        StripedLock locks = new StripedLock(1024);
+        ExecutorService other = Executors.newSingleThreadExecutor();
+        try {
+            try (StripedLock.Handle ignored = locks.lockAll(List.of(100L))) {
+                StripedLock.Handle attempt = other.submit(() -> locks.tryLockAll(List.of(1L, 2L, 100L, 200L))).get();
+                assertNull(attempt, "有分段被占用时应立即返回 null");
+                // 放弃时已获得的分段必须释放，否则这里会一直等待
+                StripedLock.Handle rest = other.submit(() -> locks.tryLockAll(List.of(1L, 2L, 200L))).get();
+                assertNotNull(rest);
+                other.submit(rest::close).get();
+            }
+        } finally {
+            other.shutdownNow();
+        }
+    }
+
+    @Test
+    void tryLockAllIsReentrantForTheHoldingThread() {
+        StripedLock locks = new StripedLock(1024);
+        try (StripedLock.Handle outer = locks.lockAll(List.of(7L, 8L))) {
+            StripedLock.Handle inner = locks.tryLockAll(List.of(8L, 9L));
+            assertNotNull(inner, "同一线程再次加锁不应失败");
+            inner.close();
+        }
+    }
+
+    @Test
+    void overlappingLockAllInAnyOrderDoesNotDeadlock() {
+        // 分段很少，各线程传入的 ID 顺序随机，加锁顺序若不统一很快就会形成等待环
+        StripedLock locks = new StripedLock(8);
+        int threads = 8;
+        int rounds = 2_000;
+        AtomicInteger inside = new AtomicInteger();
+        AtomicInteger violations = new AtomicInteger();
+
+        assertTimeoutPreemptively(TIMEOUT, () -> {
+            ExecutorService pool = Executors.newFixedThreadPool(threads);
+            try {
+                List<Future<?>> workers = new ArrayList<>();
+                for (int t = 0; t < threads; t++) {
+                    long seed = t;
+                    workers.add(pool.submit(() -> {
+                        Random random = new Random(seed);
+                        for (int round = 0; round < rounds; round++) {
+                            List<Long> ids = new ArrayList<>();
+                            for (int i = 0; i < 4; i++) {
+                                ids.add((long) random.nextInt(64));
+                            }
+                            ids.add(0L); // 所有线程都需要的 ID，用来检查互斥
+                            Collections.shuffle(ids, random);
+                            try (StripedLock.Handle ignored = locks.lockAll(ids)) {
+                                if (inside.incrementAndGet() != 1) {
+                                    violations.incrementAndGet();
+                                }
+                                inside.decrementAndGet();
+                            }
+                        }
+                        return null;
+                    }));
+                }
+                for (Future<?> worker : workers) {
+                    worker.get();
+                }
+            } finally {
+                pool.shutdownNow();
+            }
+        });
+        assertEquals(0, violations.get(), "持有同一 ID 的线程不应同时进入");
+    }
+}